@@ -73,5 +73,17 @@ public interface BoxedJsArray extends BoxedJsValue, JsonArray {
     default @Override @NotNull BoxedJsArray evalSetTrue(final String path) { evalSet(path, true); return this; }
     default @Override @NotNull BoxedJsArray evalSetFalse(final String path) { evalSet(path, false); return this; }
     default @Override @NotNull BoxedJsArray evalSetNull(final String path) { evalSet(path, JsonValue.NULL); return this; }
+    default @Override @NotNull BoxedJsArray evalSet(final @NotNull JsPath path, JsonValue value) { BoxedJson.evalSet(this, path, value); return this; }
+    default @Override @NotNull BoxedJsArray evalSet(final @NotNull JsPath path, int value) { evalSet(path, JsNumber.of(value)).asJsNumber(); return this; }
+    default @Override @NotNull BoxedJsArray evalSet(final @NotNull JsPath path, long value) { evalSet(path, JsNumber.of(value)).asJsNumber(); return this; }
+    default @Override @NotNull BoxedJsArray evalSet(final @NotNull JsPath path, BigInteger value) { evalSet(path, JsNumber.of(value)).asJsNumber(); return this; }
+    default @Override @NotNull BoxedJsArray evalSet(final @NotNull JsPath path, double value) { evalSet(path, JsNumber.of(value)).asJsNumber(); return this; }
+    default @Override @NotNull BoxedJsArray evalSet(final @NotNull JsPath path, float value) { evalSet(path, JsNumber.of(value)).asJsNumber(); return this; }
+    default @Override @NotNull BoxedJsArray evalSet(final @NotNull JsPath path, BigDecimal value) { evalSet(path, JsNumber.of(value)).asJsNumber(); return this; }
+    default @Override @NotNull BoxedJsArray evalSet(final @NotNull JsPath path, String value) { evalSet(path, JsString.of(value)).asJsString(); return this; }
+    default @Override @NotNull BoxedJsArray evalSet(final @NotNull JsPath path, boolean value) { evalSet(path, value ? JsonValue.TRUE : JsonValue.FALSE); return this; }
+    default @Override @NotNull BoxedJsArray evalSetTrue(final @NotNull JsPath path) { evalSet(path, true); return this; }
+    default @Override @NotNull BoxedJsArray evalSetFalse(final @NotNull JsPath path) { evalSet(path, false); return this; }
+    default @Override @NotNull BoxedJsArray evalSetNull(final @NotNull JsPath path) { evalSet(path, JsonValue.NULL); return this; }
     // @formatter:on
 }
@@ -40,6 +40,9 @@ public class BoxedJsArrayImpl extends BoxedJsArrayBase implements BoxedJsArray {
     @Override public boolean equals(final Object o) {
         if (this == o) return true;
 
+        if (o instanceof BoxedJsSnapshotArray) {
+            return o.equals(this);
+        }
         if ((o instanceof BoxedJsArrayImpl)) {
             return myJsonArray.equals(((BoxedJsArrayImpl) o).myJsonArray);
         }
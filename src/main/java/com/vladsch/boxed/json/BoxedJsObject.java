@@ -40,6 +40,18 @@ public interface BoxedJsObject extends BoxedJsValue, JsonObject {
     default @Override @NotNull BoxedJsObject evalSetTrue(final String path) { evalSet(path, true); return this; }
     default @Override @NotNull BoxedJsObject evalSetFalse(final String path) { evalSet(path, false); return this; }
     default @Override @NotNull BoxedJsObject evalSetNull(final String path) { evalSet(path, JsonValue.NULL); return this; }
+    default @Override @NotNull BoxedJsObject evalSet(final @NotNull JsPath path, JsonValue value) { BoxedJson.evalSet(this, path, value); return this; }
+    default @Override @NotNull BoxedJsObject evalSet(final @NotNull JsPath path, int value) { evalSet(path, JsNumber.of(value)).asJsNumber(); return this; }
+    default @Override @NotNull BoxedJsObject evalSet(final @NotNull JsPath path, long value) { evalSet(path, JsNumber.of(value)).asJsNumber(); return this; }
+    default @Override @NotNull BoxedJsObject evalSet(final @NotNull JsPath path, BigInteger value) { evalSet(path, JsNumber.of(value)).asJsNumber(); return this; }
+    default @Override @NotNull BoxedJsObject evalSet(final @NotNull JsPath path, double value) { evalSet(path, JsNumber.of(value)).asJsNumber(); return this; }
+    default @Override @NotNull BoxedJsObject evalSet(final @NotNull JsPath path, float value) { evalSet(path, JsNumber.of(value)).asJsNumber(); return this; }
+    default @Override @NotNull BoxedJsObject evalSet(final @NotNull JsPath path, BigDecimal value) { evalSet(path, JsNumber.of(value)).asJsNumber(); return this; }
+    default @Override @NotNull BoxedJsObject evalSet(final @NotNull JsPath path, String value) { evalSet(path, JsString.of(value)).asJsString(); return this; }
+    default @Override @NotNull BoxedJsObject evalSet(final @NotNull JsPath path, boolean value) { evalSet(path, value ? JsonValue.TRUE : JsonValue.FALSE); return this; }
+    default @Override @NotNull BoxedJsObject evalSetTrue(final @NotNull JsPath path) { evalSet(path, true); return this; }
+    default @Override @NotNull BoxedJsObject evalSetFalse(final @NotNull JsPath path) { evalSet(path, false); return this; }
+    default @Override @NotNull BoxedJsObject evalSetNull(final @NotNull JsPath path) { evalSet(path, JsonValue.NULL); return this; }
 
     @Override
     @NotNull
@@ -86,6 +86,9 @@ public class BoxedJsObjectImpl extends BoxedJsObjectBase {
     @Override public boolean equals(final Object o) {
         if (this == o) return true;
 
+        if (o instanceof BoxedJsSnapshotObject) {
+            return o.equals(this);
+        }
         if ((o instanceof BoxedJsObjectImpl)) {
             return myJsonObject.equals(((BoxedJsObjectImpl) o).myJsonObject);
         }
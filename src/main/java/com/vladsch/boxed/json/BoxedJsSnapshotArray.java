@@ -0,0 +1,111 @@
+package com.vladsch.boxed.json;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.json.JsonValue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Read-only array of a snapshot, elements are read from the snapshot buffer when accessed
+ * <p>
+ * Use BoxedJson.copyOf() to get a mutable copy, modifying methods including evalSet() throw
+ * UnsupportedOperationException.
+ */
+public class BoxedJsSnapshotArray extends BoxedJsArrayBase implements BoxedJsArray {
+    private final @NotNull JsSnapshot mySnapshot;
+    private final int myOffset;
+    private final int mySize;
+
+    BoxedJsSnapshotArray(final @NotNull JsSnapshot snapshot, final int offset) {
+        mySnapshot = snapshot;
+        myOffset = offset;
+        mySize = snapshot.count(offset);
+    }
+
+    @Override
+    @NotNull
+    public BoxedValueType getBoxedValueType() {
+        return BoxedValueType.ARRAY;
+    }
+
+    @Override
+    @NotNull
+    public JsonValue jsonValue() {
+        return this;
+    }
+
+    protected BoxedJsValue getOrMissing(int index) {
+        if (index < 0 || index >= mySize) {
+            return BoxedJsValue.HAD_MISSING_LITERAL;
+        }
+        return mySnapshot.value(mySnapshot.elementOffset(myOffset, index));
+    }
+
+    public String toString() {
+        return JsWriter.toJson(this);
+    }
+
+    @Override public boolean equals(Object o) {
+        if (this == o) return true;
+
+        if (o instanceof BoxedJsSnapshotArray) {
+            BoxedJsSnapshotArray other = (BoxedJsSnapshotArray) o;
+            if (mySnapshot == other.mySnapshot && myOffset == other.myOffset) return true;
+            return mySnapshot.materialize(myOffset).equals(other.mySnapshot.materialize(other.myOffset));
+        }
+        if (o instanceof BoxedJsValue) {
+            o = ((BoxedJsValue) o).jsonValue();
+        }
+        if (o instanceof JsLazyValue) {
+            o = ((JsLazyValue) o).materialize();
+        }
+        return o instanceof MutableJsArray && mySnapshot.materialize(myOffset).equals(o);
+    }
+
+    @Override public int hashCode() {
+        return mySnapshot.materialize(myOffset).hashCode();
+    }
+
+    @Override
+    public int size() {
+        return mySize;
+    }
+
+    @Override
+    public boolean add(final JsonValue value) {
+        throw JsSnapshot.readOnly();
+    }
+
+    @Override
+    public BoxedJsValue set(final int index, final JsonValue element) {
+        throw JsSnapshot.readOnly();
+    }
+
+    @Override
+    public void add(final int index, final JsonValue element) {
+        throw JsSnapshot.readOnly();
+    }
+
+    @Override
+    public BoxedJsValue remove(final int index) {
+        throw JsSnapshot.readOnly();
+    }
+
+    @Override
+    public void clear() {
+        throw JsSnapshot.readOnly();
+    }
+
+    @Override
+    public <T extends JsonValue> List<T> getValuesAs(final Class<T> aClass) {
+        ArrayList<T> list = new ArrayList<>(mySize);
+        for (int i = 0; i < mySize; i++) {
+            BoxedJsValue value = getOrMissing(i);
+            if (!aClass.isInstance(value)) return Collections.emptyList();
+            list.add(aClass.cast(value));
+        }
+        return list;
+    }
+}
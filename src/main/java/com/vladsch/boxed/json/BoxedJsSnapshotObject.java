@@ -0,0 +1,131 @@
+package com.vladsch.boxed.json;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.json.JsonValue;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Read-only object of a snapshot, keys and values are read from the snapshot buffer when accessed
+ * <p>
+ * Use BoxedJson.copyOf() to get a mutable copy, modifying methods including evalSet() throw
+ * UnsupportedOperationException.
+ */
+public class BoxedJsSnapshotObject extends BoxedJsObjectBase {
+    private final @NotNull JsSnapshot mySnapshot;
+    private final int myOffset;
+    private final int mySize;
+
+    BoxedJsSnapshotObject(final @NotNull JsSnapshot snapshot, final int offset) {
+        mySnapshot = snapshot;
+        myOffset = offset;
+        mySize = snapshot.count(offset);
+    }
+
+    @NotNull
+    @Override
+    public BoxedValueType getBoxedValueType() {
+        return BoxedValueType.OBJECT;
+    }
+
+    @NotNull @Override public JsonValue jsonValue() {
+        return this;
+    }
+
+    @NotNull
+    protected BoxedJsValue getOrMissing(Object key) {
+        if (!(key instanceof String)) return BoxedJsValue.HAD_MISSING_LITERAL;
+        int entry = mySnapshot.findEntry(myOffset, (String) key);
+        if (entry < 0) return BoxedJsValue.HAD_MISSING_LITERAL;
+        return mySnapshot.value(mySnapshot.valueOffset(myOffset, entry));
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return key instanceof String && mySnapshot.findEntry(myOffset, (String) key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return mySize;
+    }
+
+    @NotNull
+    @Override
+    public Set<Entry<String, JsonValue>> entrySet() {
+        return new AbstractSet<Entry<String, JsonValue>>() {
+            @Override
+            public Iterator<Entry<String, JsonValue>> iterator() {
+                return new Iterator<Entry<String, JsonValue>>() {
+                    int myIndex;
+
+                    @Override
+                    public boolean hasNext() {
+                        return myIndex < mySize;
+                    }
+
+                    @Override
+                    public Entry<String, JsonValue> next() {
+                        if (myIndex >= mySize) throw new NoSuchElementException();
+                        int entry = mySnapshot.memberEntry(myOffset, myIndex++);
+                        return new AbstractMap.SimpleImmutableEntry<>(mySnapshot.string(mySnapshot.keyOffset(myOffset, entry)), mySnapshot.value(mySnapshot.valueOffset(myOffset, entry)));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return mySize;
+            }
+        };
+    }
+
+    @Override
+    public BoxedJsValue put(final String key, final JsonValue value) {
+        throw JsSnapshot.readOnly();
+    }
+
+    @Override
+    public BoxedJsValue remove(final Object key) {
+        throw JsSnapshot.readOnly();
+    }
+
+    @Override
+    public BoxedJsValue replace(final String key, final JsonValue value) {
+        throw JsSnapshot.readOnly();
+    }
+
+    @Override
+    public void clear() {
+        throw JsSnapshot.readOnly();
+    }
+
+    public int hashCode() {
+        return mySnapshot.materialize(myOffset).hashCode();
+    }
+
+    public String toString() {
+        return JsWriter.toJson(this);
+    }
+
+    @Override public boolean equals(Object o) {
+        if (this == o) return true;
+
+        if (o instanceof BoxedJsSnapshotObject) {
+            BoxedJsSnapshotObject other = (BoxedJsSnapshotObject) o;
+            if (mySnapshot == other.mySnapshot && myOffset == other.myOffset) return true;
+            return mySnapshot.materialize(myOffset).equals(other.mySnapshot.materialize(other.myOffset));
+        }
+        if (o instanceof BoxedJsValue) {
+            o = ((BoxedJsValue) o).jsonValue();
+        }
+        if (o instanceof JsLazyValue) {
+            o = ((JsLazyValue) o).materialize();
+        }
+        return o instanceof MutableJsObject && mySnapshot.materialize(myOffset).equals(o);
+    }
+}
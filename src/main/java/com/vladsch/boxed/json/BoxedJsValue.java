@@ -4,8 +4,13 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.json.JsonValue;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.stream.Stream;
 
 /**
  * Implements extended json values used for representing nested searches that are erroneous
@@ -27,6 +32,28 @@ public interface BoxedJsValue extends JsonValue {
      */
     @NotNull JsonValue jsonValue();
 
+    /**
+     * Write json text of underlying unboxed value as UTF-8, invalid values are written as null
+     *
+     * @param outputStream output stream, flushed but not closed
+     * @throws javax.json.JsonException if an I/O error occurs
+     */
+    default void writeTo(@NotNull OutputStream outputStream) { JsWriter.writeTo(jsonValue(), outputStream); }
+    default void writeTo(@NotNull Writer writer) { JsWriter.writeTo(jsonValue(), writer); }
+    default void writeTo(@NotNull ByteBuffer byteBuffer) { JsWriter.writeTo(jsonValue(), byteBuffer); }
+
+    /**
+     * @return RFC 8785 canonical json text of underlying unboxed value
+     */
+    default @NotNull String toCanonicalString() { return JsWriter.toCanonicalJson(jsonValue()); }
+
+    /**
+     * Hash of canonical json text of underlying unboxed value, the same for equal values regardless of key order
+     *
+     * @return SHA-256 of UTF-8 canonical json text as lowercase hex
+     */
+    default @NotNull String contentHash() { return JsWriter.contentHash(jsonValue()); }
+
     default @NotNull BoxedJsValue asJsLiteral() { return BoxedJson.asJsLiteral(this); }
     default @NotNull BoxedJsObject asJsObject() { return BoxedJson.asJsObject(this); }
     default @NotNull BoxedJsArray asJsArray() { return BoxedJson.asJsArray(this); }
@@ -86,6 +113,52 @@ public interface BoxedJsValue extends JsonValue {
     default @NotNull String evalString(final String path, final String defaultValue) { return eval(path).asJsString().getString(defaultValue); }
     default boolean evalBoolean(final String path, final boolean defaultValue) { return eval(path).asJsBoolean().isTrue(defaultValue); }
 
+    // compiled paths, see BoxedJson.compilePath()
+    @NotNull default BoxedJsValue eval(final @NotNull JsPath path) { return BoxedJson.eval(this, path); }
+    default @NotNull BoxedJsArray evalJsArray(final @NotNull JsPath path) { return eval(path).asJsArray(); }
+    default @NotNull BoxedJsObject evalJsObject(final @NotNull JsPath path) { return eval(path).asJsObject(); }
+    default @NotNull BoxedJsNumber evalJsNumber(final @NotNull JsPath path) { return eval(path).asJsNumber(); }
+    default @NotNull BoxedJsString evalJsString(final @NotNull JsPath path) { return eval(path).asJsString(); }
+    default @NotNull BoxedJsValue evalJsBoolean(final @NotNull JsPath path) { return eval(path).asJsBoolean(); }
+    // values of unboxed numbers and strings at path are returned without boxing them
+    default int evalInt(final @NotNull JsPath path) { JsonValue value = BoxedJson.evalValue(this, path); return value instanceof JsNumber ? ((JsNumber) value).intValue() : BoxedJson.asJsNumber(value).intValue(); }
+    default long evalLong(final @NotNull JsPath path) { JsonValue value = BoxedJson.evalValue(this, path); return value instanceof JsNumber ? ((JsNumber) value).longValue() : BoxedJson.asJsNumber(value).longValue(); }
+    default @NotNull BigDecimal evalBigDecimal(final @NotNull JsPath path) { return eval(path).asJsNumber().bigDecimalValue(); }
+    default @NotNull BigInteger evalBigInteger(final @NotNull JsPath path) { return eval(path).asJsNumber().bigIntegerValue(); }
+    default double evalDouble(final @NotNull JsPath path) { JsonValue value = BoxedJson.evalValue(this, path); return value instanceof JsNumber ? ((JsNumber) value).doubleValue() : BoxedJson.asJsNumber(value).doubleValue(); }
+    default float evalFloat(final @NotNull JsPath path) { return (float) evalDouble(path); }
+    default @NotNull String evalString(final @NotNull JsPath path) { JsonValue value = BoxedJson.evalValue(this, path); return value instanceof JsString ? ((JsString) value).getString() : BoxedJson.asJsString(value).getString(); }
+    default boolean evalBoolean(final @NotNull JsPath path) { return BoxedJson.evalValue(this, path).getValueType() == ValueType.TRUE; }
+    // with defaults
+    default int evalInt(final @NotNull JsPath path, final int defaultValue) { JsonValue value = BoxedJson.evalValue(this, path); return value instanceof JsNumber ? ((JsNumber) value).intValue() : BoxedJson.asJsNumber(value).intValue(defaultValue); }
+    default long evalLong(final @NotNull JsPath path, final long defaultValue) { JsonValue value = BoxedJson.evalValue(this, path); return value instanceof JsNumber ? ((JsNumber) value).longValue() : BoxedJson.asJsNumber(value).longValue(defaultValue); }
+    default @NotNull BigDecimal evalBigDecimal(final @NotNull JsPath path, final BigDecimal defaultValue) { return eval(path).asJsNumber().bigDecimalValue(defaultValue); }
+    default @NotNull BigInteger evalBigInteger(final @NotNull JsPath path, final BigInteger defaultValue) { return eval(path).asJsNumber().bigIntegerValue(defaultValue); }
+    default double evalDouble(final @NotNull JsPath path, final double defaultValue) { JsonValue value = BoxedJson.evalValue(this, path); return value instanceof JsNumber ? ((JsNumber) value).doubleValue() : BoxedJson.asJsNumber(value).doubleValue(defaultValue); }
+    default float evalFloat(final @NotNull JsPath path, final float defaultValue) { return eval(path).asJsNumber().floatValue(defaultValue); }
+    default @NotNull String evalString(final @NotNull JsPath path, final String defaultValue) { JsonValue value = BoxedJson.evalValue(this, path); return value instanceof JsString ? ((JsString) value).getString() : BoxedJson.asJsString(value).getString(defaultValue); }
+    default boolean evalBoolean(final @NotNull JsPath path, final boolean defaultValue) { return eval(path).asJsBoolean().isTrue(defaultValue); }
+
+    /**
+     * Evaluate paths in one traversal, values on shared prefixes of the paths are looked up once
+     *
+     * @param paths paths to evaluate
+     * @return value at each path, same as eval() for the path
+     */
+    default @NotNull BoxedJsValue[] evalAll(final @NotNull String... paths) { return BoxedJson.evalAll(this, paths); }
+    default @NotNull BoxedJsValue[] evalAll(final @NotNull JsPath... paths) { return BoxedJson.evalAll(this, paths); }
+
+    /**
+     * Values matching a query with wildcard, recursive descent and filter steps, see JsPathQuery
+     *
+     * @param query query
+     * @return valid matching values in document order, the json tree is walked as values are requested
+     */
+    default @NotNull Iterator<BoxedJsValue> evalIterator(final @NotNull String query) { return BoxedJson.evalIterator(this, query); }
+    default @NotNull Iterator<BoxedJsValue> evalIterator(final @NotNull JsPathQuery query) { return BoxedJson.evalIterator(this, query); }
+    default @NotNull Stream<BoxedJsValue> evalStream(final @NotNull String query) { return BoxedJson.evalStream(this, query); }
+    default @NotNull Stream<BoxedJsValue> evalStream(final @NotNull JsPathQuery query) { return BoxedJson.evalStream(this, query); }
+
     /**
      * Set the end of the path to given value
      * <p>
@@ -117,6 +190,19 @@ public interface BoxedJsValue extends JsonValue {
     default @NotNull BoxedJsValue evalSetFalse(final String path) { return evalSet(path, false); }
     default @NotNull BoxedJsValue evalSetNull(final String path) { return evalSet(path, JsonValue.NULL); }
 
+    default @NotNull BoxedJsValue evalSet(final @NotNull JsPath path, JsonValue value) { return BoxedJson.evalSet(this, path, value); }
+    default @NotNull BoxedJsValue evalSet(final @NotNull JsPath path, int value) { return evalSet(path, JsNumber.of(value)).asJsNumber(); }
+    default @NotNull BoxedJsValue evalSet(final @NotNull JsPath path, long value) { return evalSet(path, JsNumber.of(value)).asJsNumber(); }
+    default @NotNull BoxedJsValue evalSet(final @NotNull JsPath path, BigInteger value) { return evalSet(path, JsNumber.of(value)).asJsNumber(); }
+    default @NotNull BoxedJsValue evalSet(final @NotNull JsPath path, double value) { return evalSet(path, JsNumber.of(value)).asJsNumber(); }
+    default @NotNull BoxedJsValue evalSet(final @NotNull JsPath path, float value) { return evalSet(path, JsNumber.of(value)).asJsNumber(); }
+    default @NotNull BoxedJsValue evalSet(final @NotNull JsPath path, BigDecimal value) { return evalSet(path, JsNumber.of(value)).asJsNumber(); }
+    default @NotNull BoxedJsValue evalSet(final @NotNull JsPath path, String value) { return evalSet(path, JsString.of(value)).asJsString(); }
+    default @NotNull BoxedJsValue evalSet(final @NotNull JsPath path, boolean value) { return evalSet(path, value ? JsonValue.TRUE : JsonValue.FALSE); }
+    default @NotNull BoxedJsValue evalSetTrue(final @NotNull JsPath path) { return evalSet(path, true); }
+    default @NotNull BoxedJsValue evalSetFalse(final @NotNull JsPath path) { return evalSet(path, false); }
+    default @NotNull BoxedJsValue evalSetNull(final @NotNull JsPath path) { return evalSet(path, JsonValue.NULL); }
+
     enum BoxedValueType {
         ARRAY(ValueType.ARRAY),
         OBJECT(ValueType.OBJECT),
@@ -3,22 +3,46 @@ package com.vladsch.boxed.json;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import javax.json.Json;
 import javax.json.JsonArray;
+import javax.json.JsonException;
 import javax.json.JsonNumber;
 import javax.json.JsonObject;
 import javax.json.JsonString;
 import javax.json.JsonValue;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
-import java.io.StringReader;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static java.lang.Character.isDigit;
 
 public class BoxedJson {
+    private static volatile JsPathCache ourPathCache = new JsPathCache();
+
+    /**
+     * @return cache of compiled paths used by eval() and evalSet() with path text
+     */
+    public static @NotNull JsPathCache getPathCache() {
+        return ourPathCache;
+    }
+
+    /**
+     * @param pathCache cache of compiled paths to use for eval() and evalSet() with path text
+     */
+    public static void setPathCache(final @NotNull JsPathCache pathCache) {
+        ourPathCache = pathCache;
+    }
+
     public static BoxedJsValue boxedOf(JsonValue jsonValue) {
         if (jsonValue instanceof BoxedJsValue) return (BoxedJsValue) jsonValue;
 
@@ -26,6 +50,10 @@ public class BoxedJson {
             return new BoxedJsValueLiteral(JsonValue.NULL);
         }
 
+        if (jsonValue instanceof JsLazyValue) {
+            jsonValue = ((JsLazyValue) jsonValue).materialize();
+        }
+
         switch (jsonValue.getValueType()) {
             case ARRAY:
                 return new BoxedJsArrayImpl(MutableJson.of((JsonArray) jsonValue));
@@ -96,15 +124,15 @@ public class BoxedJson {
     }
 
     public static BoxedJsObject boxedFrom(final @NotNull Reader json) {
-        return boxedOf(Json.createReader(json).readObject());
+        return boxedOf(MutableJson.objectFrom(json));
     }
 
     public static BoxedJsObject boxedFrom(final @NotNull InputStream json) {
-        return boxedOf(Json.createReader(json).readObject());
+        return boxedOf(MutableJson.objectFrom(json));
     }
 
     public static BoxedJsObject boxedFrom(final @Nullable String json) {
-        return json == null ? BoxedJsObject.HAD_NULL_OBJECT : boxedFrom(new StringReader(json));
+        return json == null ? BoxedJsObject.HAD_NULL_OBJECT : boxedOf(MutableJson.objectFrom(json));
     }
 
     @Deprecated
@@ -134,6 +162,182 @@ public class BoxedJson {
         return boxedOf(json == null ? BoxedJsObject.HAD_NULL_OBJECT : MutableJson.objectFrom(json));
     }
 
+    public static BoxedJsObject objectFrom(final @NotNull byte[] json, int offset, int length) {
+        return boxedOf(MutableJson.objectFrom(json, offset, length));
+    }
+
+    public static BoxedJsObject objectFrom(final @NotNull ByteBuffer json) {
+        return boxedOf(MutableJson.objectFrom(json));
+    }
+
+    /**
+     * Parse json file, memory mapped in regions of at most 1GB so files of any size are mapped
+     *
+     * @param json UTF-8 json file
+     * @return boxed object
+     * @throws IOException if file cannot be read
+     */
+    public static BoxedJsObject objectFrom(final @NotNull Path json) throws IOException {
+        return boxedOf(MutableJson.objectFrom(json));
+    }
+
+    /**
+     * Parse object keeping only values on the given paths, values not on any path are skipped
+     * without being created. Evaluating any of the paths on the result gives the same value as for
+     * the complete json.
+     *
+     * @param json  json
+     * @param paths paths of values to keep, in eval() syntax
+     * @return boxed object with selected values
+     */
+    public static BoxedJsObject extract(final @NotNull Reader json, String... paths) {
+        return boxedOf(MutableJson.extract(json, paths));
+    }
+
+    public static BoxedJsObject extract(final @NotNull InputStream json, String... paths) {
+        return boxedOf(MutableJson.extract(json, paths));
+    }
+
+    public static BoxedJsObject extract(final @NotNull byte[] json, String... paths) {
+        return boxedOf(MutableJson.extract(json, paths));
+    }
+
+    public static BoxedJsObject extract(final @Nullable String json, String... paths) {
+        return json == null ? BoxedJsObject.HAD_NULL_OBJECT : boxedOf(MutableJson.extract(json, paths));
+    }
+
+    /**
+     * Iterate over elements of a top level array, parsing one element at a time so memory use is
+     * bounded by the largest element
+     *
+     * @param json UTF-8 json array
+     * @return iterator over boxed array elements
+     */
+    public static Iterator<BoxedJsValue> arrayElements(final @NotNull InputStream json) {
+        return boxedIterator(MutableJson.arrayElements(json));
+    }
+
+    public static Iterator<BoxedJsValue> arrayElements(final @NotNull Reader json) {
+        return boxedIterator(MutableJson.arrayElements(json));
+    }
+
+    /**
+     * @param json UTF-8 json array
+     * @return stream of boxed array elements, parsed as the stream is consumed
+     */
+    public static Stream<BoxedJsValue> arrayElementStream(final @NotNull InputStream json) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(arrayElements(json), Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private static Iterator<BoxedJsValue> boxedIterator(final Iterator<JsonValue> iterator) {
+        return new Iterator<BoxedJsValue>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public BoxedJsValue next() {
+                return boxedOf(iterator.next());
+            }
+        };
+    }
+
+    /**
+     * Parse json lines, newline separated objects
+     *
+     * @param json UTF-8 json lines
+     * @return stream of parsed objects, parsed as the stream is consumed
+     */
+    public static Stream<BoxedJsObject> linesFrom(final @NotNull InputStream json) {
+        return MutableJson.linesFrom(json).map(jsObject -> boxedOf(jsObject));
+    }
+
+    public static Stream<BoxedJsObject> linesFrom(final @NotNull Reader json) {
+        return MutableJson.linesFrom(json).map(jsObject -> boxedOf(jsObject));
+    }
+
+    /**
+     * Parse json lines in parallel on the common ForkJoinPool
+     *
+     * @param json    UTF-8 json lines from the buffer's position to its limit
+     * @param ordered true to keep input order, false to get objects in any order
+     * @return parallel stream of parsed objects
+     */
+    public static Stream<BoxedJsObject> parallelLinesFrom(final @NotNull ByteBuffer json, boolean ordered) {
+        return MutableJson.parallelLinesFrom(json, ordered).map(jsObject -> boxedOf(jsObject));
+    }
+
+    public static Stream<BoxedJsObject> parallelLinesFrom(final @NotNull byte[] json, boolean ordered) {
+        return MutableJson.parallelLinesFrom(json, ordered).map(jsObject -> boxedOf(jsObject));
+    }
+
+    public static Stream<BoxedJsObject> parallelLinesFrom(final @NotNull Path json, boolean ordered) throws IOException {
+        return MutableJson.parallelLinesFrom(json, ordered).map(jsObject -> boxedOf(jsObject));
+    }
+
+    /**
+     * Open snapshot written by MutableJson.writeSnapshot(), only the header is read
+     * <p>
+     * Objects and arrays of the snapshot are read-only and read their keys and values from the
+     * buffer when accessed, the buffer must not be modified while they are in use. Modifying them,
+     * including with evalSet(), throws UnsupportedOperationException, use copyOf() to get a mutable copy.
+     *
+     * @param snapshot buffer with snapshot starting at its position
+     * @return root value of snapshot
+     * @throws javax.json.JsonException if buffer does not contain a snapshot
+     */
+    public static BoxedJsValue snapshotFrom(final @NotNull ByteBuffer snapshot) {
+        return new JsSnapshot(snapshot).root();
+    }
+
+    public static BoxedJsObject snapshotObjectFrom(final @NotNull ByteBuffer snapshot) {
+        return snapshotFrom(snapshot).asJsObject();
+    }
+
+    public static BoxedJsArray snapshotArrayFrom(final @NotNull ByteBuffer snapshot) {
+        return snapshotFrom(snapshot).asJsArray();
+    }
+
+    /**
+     * Open snapshot file, the file is memory mapped as a single region so snapshot files are limited to 2GB.
+     * Values are read-only, see snapshotFrom(ByteBuffer).
+     *
+     * @param snapshot snapshot file
+     * @return root value of snapshot
+     * @throws IOException if the file cannot be mapped
+     * @throws javax.json.JsonException if file does not contain a snapshot or is larger than 2GB
+     */
+    public static BoxedJsValue snapshotFrom(final @NotNull Path snapshot) throws IOException {
+        ByteBuffer buffer = MutableJson.mapFile(snapshot);
+        if (buffer == null) throw new JsonException("JSON snapshot larger than 2GB cannot be mapped");
+        return snapshotFrom(buffer);
+    }
+
+    public static BoxedJsObject snapshotObjectFrom(final @NotNull Path snapshot) throws IOException {
+        return snapshotFrom(snapshot).asJsObject();
+    }
+
+    public static BoxedJsArray snapshotArrayFrom(final @NotNull Path snapshot) throws IOException {
+        return snapshotFrom(snapshot).asJsArray();
+    }
+
+    public static BoxedJsObject lazyObjectFrom(final @Nullable String json) {
+        return boxedOf(json == null ? BoxedJsObject.HAD_NULL_OBJECT : MutableJson.lazyObjectFrom(json));
+    }
+
+    public static BoxedJsArray lazyArrayFrom(final @Nullable String json) {
+        return boxedOf(json == null ? BoxedJsArray.HAD_NULL_ARRAY : MutableJson.lazyArrayFrom(json));
+    }
+
+    public static BoxedJsObject lazyObjectFrom(final @NotNull ByteBuffer json) {
+        return boxedOf(MutableJson.lazyObjectFrom(json));
+    }
+
+    public static BoxedJsArray lazyArrayFrom(final @NotNull ByteBuffer json) {
+        return boxedOf(MutableJson.lazyArrayFrom(json));
+    }
+
     public static BoxedJsArray arrayFrom(final @NotNull Reader json) {
         return boxedOf(MutableJson.arrayFrom(json));
     }
@@ -146,6 +350,18 @@ public class BoxedJson {
         return boxedOf(json == null ? BoxedJsArray.HAD_NULL_ARRAY : MutableJson.arrayFrom(json));
     }
 
+    public static BoxedJsArray arrayFrom(final @NotNull byte[] json, int offset, int length) {
+        return boxedOf(MutableJson.arrayFrom(json, offset, length));
+    }
+
+    public static BoxedJsArray arrayFrom(final @NotNull ByteBuffer json) {
+        return boxedOf(MutableJson.arrayFrom(json));
+    }
+
+    public static BoxedJsArray arrayFrom(final @NotNull Path json) throws IOException {
+        return boxedOf(MutableJson.arrayFrom(json));
+    }
+
     public static BoxedJsValue of(JsonValue jsonValue) {
         return boxedOf(MutableJson.of(jsonValue));
     }
@@ -207,6 +423,10 @@ public class BoxedJson {
             jsonValue = ((BoxedJsValue) jsonValue).jsonValue();
         }
 
+        if (jsonValue instanceof JsLazyValue) {
+            jsonValue = ((JsLazyValue) jsonValue).materialize();
+        }
+
         if (jsonValue == null) {
             return JsonValue.NULL;
         }
@@ -325,6 +545,19 @@ public class BoxedJson {
         return parts.toArray();
     }
 
+    /**
+     * Compile path for repeated evaluation
+     *
+     * @param path path in eval() syntax, empty [] index is allowed for evalSet()
+     * @return compiled path
+     * @throws IllegalArgumentException if path is not valid
+     */
+    public static @NotNull JsPath compilePath(final @NotNull String path) {
+        Object[] parts = parseEvalPath(path, true);
+        if (parts == null) throw new IllegalArgumentException("Invalid path argument");
+        return new JsPath(path.trim(), parts);
+    }
+
     /**
      * Returns the end value of evaluating lookups based on a path of . or [n] separated
      * parts. A dot designates an object key lookup, a [n] an array lookup. Returned value is
@@ -336,37 +569,195 @@ public class BoxedJson {
      * @return value at path (check for validity)
      */
     public static @NotNull BoxedJsValue eval(BoxedJsValue jsValue, final String path) {
-        Object[] parts = parseEvalPath(path, false);
-        if (parts == null)
+        return eval(jsValue, ourPathCache.get(path));
+    }
+
+    public static @NotNull BoxedJsValue eval(BoxedJsValue jsValue, final @NotNull JsPath path) {
+        return boxedOf(evalValue(jsValue, path));
+    }
+
+    /**
+     * Evaluate path on unboxed values, only the result of an invalid lookup is boxed
+     *
+     * @param jsValue object to query
+     * @param path    path to evaluate
+     * @return unboxed value at path or invalid boxed value
+     */
+    static @NotNull JsonValue evalValue(BoxedJsValue jsValue, final @NotNull JsPath path) {
+        if (path.hasEmptyIndex())
             throw new IllegalArgumentException("Invalid path argument");
         else if (jsValue.isLiteral())
             return asHadNullOrInvalidType(jsValue).asJsLiteral();
 
-        BoxedJsValue element = jsValue;
+        JsonValue element = jsValue.isValid() ? jsValue.jsonValue() : jsValue;
 
-        int iMax = parts.length;
+        int iMax = path.size();
         for (int i = 0; i < iMax; i++) {
-            Object part = parts[i];
-            if (part instanceof String) {
+            if (element instanceof JsLazyValue) element = ((JsLazyValue) element).materialize();
+
+            String key = path.getKey(i);
+            if (key != null) {
                 // object lookup
-                BoxedJsObject jsonObject = element.asJsObject();
-                if (jsonObject.isInvalidJsonValue()) return jsonObject;
-                element = jsonObject.get(part);
-                if (element.isInvalidJsonValue()) break;
-            } else if (part instanceof Integer) {
-                // array lookup
-                BoxedJsArray jsonArray = element.asJsArray();
-                if (jsonArray.isInvalidJsonValue()) return jsonArray;
-                element = jsonArray.get((Integer) part);
-                if (element.isInvalidJsonValue()) break;
+                if (element.getValueType() != JsonValue.ValueType.OBJECT) return asHadNullOrInvalidType(element).asJsObject();
+                JsonObject jsonObject = (JsonObject) element;
+                element = jsonObject.get(key);
+                if (element == null) {
+                    if (!jsonObject.containsKey(key)) return BoxedJsValue.HAD_MISSING_LITERAL;
+                    element = JsonValue.NULL;
+                }
             } else {
-                // not valid index, should not happen
-                throw new IllegalStateException("Unexpected condition");
+                // array lookup
+                if (element.getValueType() != JsonValue.ValueType.ARRAY) return asHadNullOrInvalidType(element).asJsArray();
+                JsonArray jsonArray = (JsonArray) element;
+                int index = path.getIndex(i);
+                if (index >= jsonArray.size()) return BoxedJsValue.HAD_MISSING_LITERAL;
+                element = jsonArray.get(index);
+                if (element == null) element = JsonValue.NULL;
             }
+
+            if (element instanceof BoxedJsValue && ((BoxedJsValue) element).isInvalidJsonValue()) break;
         }
         return element;
     }
 
+    /**
+     * Evaluate paths in one traversal, values on shared prefixes of the paths are looked up once
+     *
+     * @param jsValue object to query
+     * @param paths   paths to evaluate
+     * @return value at each path, same as eval() for the path
+     */
+    public static @NotNull BoxedJsValue[] evalAll(BoxedJsValue jsValue, final @NotNull String... paths) {
+        JsPathCache pathCache = ourPathCache;
+        int iMax = paths.length;
+        JsPath[] jsPaths = new JsPath[iMax];
+        for (int i = 0; i < iMax; i++) {
+            jsPaths[i] = pathCache.get(paths[i]);
+        }
+        return evalAll(jsValue, jsPaths);
+    }
+
+    public static @NotNull BoxedJsValue[] evalAll(BoxedJsValue jsValue, final @NotNull JsPath... paths) {
+        JsPathTrie trie = JsPathTrie.of(paths);
+        BoxedJsValue[] results = new BoxedJsValue[paths.length];
+
+        if (jsValue.isLiteral()) {
+            trie.setAll(results, asHadNullOrInvalidType(jsValue).asJsLiteral());
+        } else {
+            evalAll(trie, jsValue.isValid() ? jsValue.jsonValue() : jsValue, results);
+        }
+        return results;
+    }
+
+    private static void evalAll(JsPathTrie node, JsonValue element, BoxedJsValue[] results) {
+        if (element instanceof JsLazyValue) element = ((JsLazyValue) element).materialize();
+
+        int[] paths = node.getPaths();
+        if (paths != null) {
+            BoxedJsValue value = boxedOf(element);
+            for (int path : paths) {
+                results[path] = value;
+            }
+        }
+
+        if (node.hasKeys()) {
+            // object lookup
+            if (element.getValueType() != JsonValue.ValueType.OBJECT) {
+                BoxedJsObject invalid = asHadNullOrInvalidType(element).asJsObject();
+                for (Map.Entry<String, JsPathTrie> entry : node.keyEntries()) {
+                    entry.getValue().setAll(results, invalid);
+                }
+            } else {
+                JsonObject jsonObject = (JsonObject) element;
+                for (Map.Entry<String, JsPathTrie> entry : node.keyEntries()) {
+                    String key = entry.getKey();
+                    JsonValue value = jsonObject.get(key);
+                    if (value == null) {
+                        if (!jsonObject.containsKey(key)) {
+                            entry.getValue().setAll(results, BoxedJsValue.HAD_MISSING_LITERAL);
+                            continue;
+                        }
+                        value = JsonValue.NULL;
+                    }
+                    evalAllChild(entry.getValue(), value, results);
+                }
+            }
+        }
+
+        int indexCount = node.indexCount();
+        if (indexCount > 0) {
+            // array lookup
+            if (element.getValueType() != JsonValue.ValueType.ARRAY) {
+                BoxedJsArray invalid = asHadNullOrInvalidType(element).asJsArray();
+                for (int i = 0; i < indexCount; i++) {
+                    node.indexChildAt(i).setAll(results, invalid);
+                }
+            } else {
+                JsonArray jsonArray = (JsonArray) element;
+                int size = jsonArray.size();
+                for (int i = 0; i < indexCount; i++) {
+                    JsPathTrie child = node.indexChildAt(i);
+                    int index = node.indexAt(i);
+
+                    if (index >= size) {
+                        child.setAll(results, BoxedJsValue.HAD_MISSING_LITERAL);
+                    } else {
+                        JsonValue value = jsonArray.get(index);
+                        evalAllChild(child, value == null ? JsonValue.NULL : value, results);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void evalAllChild(JsPathTrie child, JsonValue value, BoxedJsValue[] results) {
+        if (value instanceof BoxedJsValue && ((BoxedJsValue) value).isInvalidJsonValue()) {
+            child.setAll(results, (BoxedJsValue) value);
+        } else {
+            evalAll(child, value, results);
+        }
+    }
+
+    /**
+     * Compile query for repeated evaluation
+     *
+     * @param query path in eval() syntax with wildcard, recursive descent and filter steps, see JsPathQuery
+     * @return compiled query
+     * @throws IllegalArgumentException if query is not valid
+     */
+    public static @NotNull JsPathQuery compileQuery(final @NotNull String query) {
+        return JsPathQuery.of(query);
+    }
+
+    /**
+     * Values matching a query, in document order. The json tree is walked as values are requested
+     * and must not be modified until iteration is done.
+     *
+     * @param jsValue object to query
+     * @param query   query, see JsPathQuery
+     * @return iterator of valid matching values, empty if there are none
+     */
+    public static @NotNull Iterator<BoxedJsValue> evalIterator(BoxedJsValue jsValue, final @NotNull String query) {
+        return evalIterator(jsValue, JsPathQuery.of(query));
+    }
+
+    public static @NotNull Iterator<BoxedJsValue> evalIterator(BoxedJsValue jsValue, final @NotNull JsPathQuery query) {
+        return new JsPathQueryIterator(query, jsValue.isValid() ? JsPathQuery.valid(jsValue.jsonValue()) : null);
+    }
+
+    /**
+     * @param jsValue object to query
+     * @param query   query, see JsPathQuery
+     * @return stream of valid matching values, the json tree is walked as the stream is consumed
+     */
+    public static @NotNull Stream<BoxedJsValue> evalStream(BoxedJsValue jsValue, final @NotNull String query) {
+        return evalStream(jsValue, JsPathQuery.of(query));
+    }
+
+    public static @NotNull Stream<BoxedJsValue> evalStream(BoxedJsValue jsValue, final @NotNull JsPathQuery query) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(evalIterator(jsValue, query), Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
     /**
      * Set the end of the path to given value
      * <p>
@@ -389,96 +780,118 @@ public class BoxedJson {
      *         If result.isValid() is false then no changes were made because of errors
      */
     public static @NotNull BoxedJsValue evalSet(BoxedJsValue jsValue, final String path, JsonValue jsonValue) {
-        Object[] parts = parseEvalPath(path, true);
-        if (parts == null)
-            throw new IllegalArgumentException("Invalid path argument");
-        else if (jsValue.isLiteral())
-            return asHadNullOrInvalidType(jsValue).asJsLiteral();
-
-        BoxedJsValue element = jsValue;
-
-        int iMax = parts.length;
+        return evalSet(jsValue, ourPathCache.get(path), jsonValue);
+    }
 
-        // new values, only to be added if successful
-        PostponedJsChanges postponedJsChanges = new PostponedJsChanges();
+    public static @NotNull BoxedJsValue evalSet(BoxedJsValue jsValue, final @NotNull JsPath path, JsonValue jsonValue) {
+        if (jsValue.isLiteral()) return asHadNullOrInvalidType(jsValue).asJsLiteral();
 
-        for (int i = 0; i < iMax; i++) {
-            Object part = parts[i];
-            BoxedJsObject jsObject = element.asJsObject();
-            BoxedJsArray jsArray = element.asJsArray();
-            if (part instanceof String) {
+        int iMax = path.size();
+        if (!jsValue.isValid()) {
+            BoxedJsValue.BoxedValueType boxedValueType = jsValue.getBoxedValueType();
+            return iMax == 0 ? boxedValueType.asJsOfType(jsonValue) : path.isKey(0) ? boxedValueType.asJsObject() : boxedValueType.asJsArray();
+        }
+        if (iMax == 0) return jsValue;
+
+        // first missing part is created detached and only added to its container if successful,
+        // missing parts after it are added to their detached containers as they are created
+        JsonValue detached = null;
+        JsonValue detachedContainer = null;
+        String detachedKey = null;
+        int detachedIndex = 0;
+
+        JsonValue element = jsValue.jsonValue();
+        int last = iMax - 1;
+        for (int i = 0; ; i++) {
+            String key = path.getKey(i);
+            int index = 0;
+            JsonValue value;
+
+            if (key != null) {
                 // object lookup
-                if (jsObject.isInvalidJsonValue()) return jsObject;
+                if (element.getValueType() != JsonValue.ValueType.OBJECT) return asHadNullOrInvalidType(element).asJsObject();
+                JsonObject jsonObject = (JsonObject) element;
 
-                if (i + 1 == iMax) {
+                if (i == last) {
                     // last one, set it
-                    jsObject.put((String) part, jsonValue);
-                    postponedJsChanges.applyChanges();
-                    return jsValue;
-                } else {
-                    element = jsObject.get(part);
+                    jsonObject.put(key, jsonValue);
+                    break;
                 }
-            } else if (part instanceof Integer) {
+
+                value = jsonObject.get(key);
+                if (value == null && jsonObject.containsKey(key)) value = JsonValue.NULL;
+            } else {
                 // array lookup
-                if (jsArray.isInvalidJsonValue()) return jsArray;
-                if ((int) part == -1) part = jsArray.size();
-                int index = (Integer) part;
+                if (element.getValueType() != JsonValue.ValueType.ARRAY) return asHadNullOrInvalidType(element).asJsArray();
+                JsonArray jsonArray = (JsonArray) element;
+                int size = jsonArray.size();
+                index = path.getIndex(i);
+                if (index == JsPath.EMPTY_INDEX) index = size;
 
-                if (i + 1 == iMax) {
-                    // last one, set it
-                    if (index >= 0 && index <= jsArray.size()) {
-                        if (index < jsArray.size()) {
-                            // set
-                            jsArray.set(index, jsonValue);
-                            postponedJsChanges.applyChanges();
-                            return jsValue;
-                        } else {
-                            // add, return value
-                            jsArray.add(jsonValue);
-                            postponedJsChanges.applyChanges();
-                            return jsValue;
-                        }
-                    }
+                if (i == last) {
                     // invalid index, ie. Missing
-                    return BoxedJsValue.BoxedValueType.HAD_MISSING.asJsOfType(jsValue);
-                } else {
-                    element = jsArray.get(index);
+                    if (index > size) return BoxedJsValue.BoxedValueType.HAD_MISSING.asJsOfType(jsValue);
+
+                    // last one, set or add it
+                    if (index < size) jsonArray.set(index, jsonValue);
+                    else jsonArray.add(jsonValue);
+                    break;
                 }
-            } else {
-                // not valid index, should not happen
-                return asHadNullOrInvalidType(element).asJsOfType(jsValue);
+
+                // a new part can only be added at the end
+                if (index > size) return BoxedJsValue.BoxedValueType.HAD_MISSING.asJsOfType(jsonValue);
+                value = index < size ? jsonArray.get(index) : null;
             }
 
-            // here we may have to add it
-            if (element.hadMissing()) {
+            if (value instanceof BoxedJsValue) {
+                BoxedJsValue boxedValue = (BoxedJsValue) value;
+                if (boxedValue.isValid()) value = boxedValue.jsonValue();
+                else if (boxedValue.hadMissing()) value = null;
+                else return boxedValue.getBoxedValueType().asJsOfType(jsonValue);
+            } else if (value instanceof JsLazyValue) {
+                value = ((JsLazyValue) value).materialize();
+            }
+
+            if (value == null) {
                 // set it to a new object or a new array depending on the next part
-                final Object nextPart = parts[i + 1];
-                if (nextPart instanceof Integer) {
-                    if ((Integer) nextPart == 0 || (Integer) nextPart == -1) {
-                        // valid index for a new array
-                        element = boxedOf(new MutableJsArray(1));
-                    } else {
-                        break;
-                    }
-                } else if (nextPart instanceof String) {
-                    // an object
-                    element = boxedOf(new MutableJsObject(1));
+                if (path.isKey(i + 1)) {
+                    value = new MutableJsObject(1);
                 } else {
-                    // not valid index, should not happen
-                    throw new IllegalStateException("Unexpected condition");
+                    int nextIndex = path.getIndex(i + 1);
+                    if (nextIndex != 0 && nextIndex != JsPath.EMPTY_INDEX) return BoxedJsValue.BoxedValueType.HAD_MISSING.asJsOfType(jsonValue);
+
+                    // valid index for a new array
+                    value = new MutableJsArray(1);
                 }
 
-                if (part instanceof String) {
-                    //jsonObject.put((String) part, element);
-                    postponedJsChanges.add(new PostponedJsChanges.SetParams(jsObject, part, element));
+                if (detached == null) {
+                    detached = value;
+                    detachedContainer = element;
+                    detachedKey = key;
+                    detachedIndex = index;
+                } else if (key != null) {
+                    ((JsonObject) element).put(key, value);
                 } else {
-                    postponedJsChanges.add(new PostponedJsChanges.SetParams(jsArray, part, element));
+                    ((JsonArray) element).add(value);
                 }
+            } else if (!(value instanceof BoxedJsValue)) {
+                // same as boxedOf(), boxed containers such as read-only snapshot values are used as is
+                if (value.getValueType() == JsonValue.ValueType.OBJECT) value = MutableJson.of((JsonObject) value);
+                else if (value.getValueType() == JsonValue.ValueType.ARRAY) value = MutableJson.of((JsonArray) value);
+            }
+
+            element = value;
+        }
+
+        if (detached != null) {
+            if (detachedKey != null) {
+                ((JsonObject) detachedContainer).put(detachedKey, detached);
+            } else {
+                JsonArray jsonArray = (JsonArray) detachedContainer;
+                if (detachedIndex < jsonArray.size()) jsonArray.set(detachedIndex, detached);
+                else jsonArray.add(detached);
             }
-            if (element.isInvalidJsonValue()) break;
         }
-        if (element.isInvalidJsonValue()) return element.getBoxedValueType().asJsOfType(jsonValue);
-        postponedJsChanges.applyChanges();
         return jsValue;
     }
 
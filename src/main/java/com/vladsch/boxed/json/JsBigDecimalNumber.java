@@ -1,15 +1,102 @@
 package com.vladsch.boxed.json;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 
 public final class JsBigDecimalNumber extends JsNumber {
-    private final BigDecimal bigDecimal;
+    private BigDecimal bigDecimal;
+
+    // UTF-8 source of a parsed value, converted on first request
+    private final ByteBuffer mySource;
+    private final int myStart;
+    private final int myEnd;
 
     public JsBigDecimalNumber(BigDecimal value) {
         this.bigDecimal = value;
+        mySource = null;
+        myStart = 0;
+        myEnd = 0;
+    }
+
+    /**
+     * Create number value from UTF-8 json number, converted when first requested
+     *
+     * @param source buffer with number
+     * @param start  start of number
+     * @param end    end of number
+     */
+    JsBigDecimalNumber(ByteBuffer source, int start, int end) {
+        mySource = source;
+        myStart = start;
+        myEnd = end;
     }
 
     public BigDecimal bigDecimalValue() {
-        return this.bigDecimal;
+        BigDecimal bd = this.bigDecimal;
+        if (bd == null) {
+            this.bigDecimal = bd = decode(mySource, myStart, myEnd, null);
+        }
+        return bd;
+    }
+
+    /**
+     * Write source of a parsed value if it is the same as bigDecimalValue().toString(), which is the
+     * case for numbers without exponent which BigDecimal.toString() does not write in scientific notation
+     * and which are not negative zero
+     *
+     * @param writer writer
+     * @return true if source was written
+     */
+    boolean writeSource(JsWriter writer) {
+        ByteBuffer source = mySource;
+        if (source == null) return false;
+
+        int i = myStart;
+        boolean negative = source.get(i) == '-';
+        if (negative) i++;
+
+        if (source.get(i) == '0') {
+            // json numbers have no leading zeros, only 0 or 0.fraction
+            int zeros = 0;
+            int fraction = 0;
+            boolean isZero = true;
+            for (int j = i + 2; j < myEnd; j++) {
+                byte c = source.get(j);
+                if (c == 'e' || c == 'E') return false;
+                fraction++;
+                if (isZero) {
+                    if (c == '0') zeros++;
+                    else isZero = false;
+                }
+            }
+            if (isZero ? negative || fraction > 6 : zeros >= 6) return false;
+        } else {
+            for (int j = i; j < myEnd; j++) {
+                byte c = source.get(j);
+                if (c == 'e' || c == 'E') return false;
+            }
+        }
+
+        writer.writeUtf8(source, myStart, myEnd);
+        return true;
+    }
+
+    /**
+     * @param buffer buffer with UTF-8 json number
+     * @param start  start of number
+     * @param end    end of number
+     * @param chars  buffer for number chars, if null or too small a new one is allocated
+     * @return decimal value
+     */
+    static BigDecimal decode(ByteBuffer buffer, int start, int end, char[] chars) {
+        int length = end - start;
+        if (chars == null || chars.length < length) {
+            chars = new char[length];
+        }
+
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) (buffer.get(start + i) & 0xff);
+        }
+        return new BigDecimal(chars, 0, length);
     }
 }
@@ -0,0 +1,251 @@
+package com.vladsch.boxed.json;
+
+import javax.json.JsonException;
+import javax.json.JsonValue;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static com.vladsch.boxed.json.JsBinaryWriter.*;
+
+/**
+ * Reader of the binary encoding written by JsBinaryWriter
+ * <p>
+ * Byte buffers are read with absolute gets and strings are decoded directly from the buffer.
+ * <p>
+ * Input streams are read in bulk into a byte array. The bytes following a value are not consumed:
+ * a stream which supports mark() is read ahead and reset to the end of the value when done, other
+ * streams are only read for the bytes known to be needed, which reads tags and lengths a byte at a
+ * time.
+ */
+final class JsBinaryReader {
+    static final int MAX_INITIAL_CAPACITY = 1024;
+    static final int BUFFER_SIZE = 8192;
+
+    private final InputStream myInputStream;
+    private final boolean myReadAhead;  // stream supports mark() and is reset to end of value
+    private final ByteBuffer myBuffer;
+    private int myPos;
+    private int myLimit;
+    private int myReadStart;            // position in myBytes of stream position at last mark()
+    private byte[] myBytes;
+
+    JsBinaryReader(final InputStream inputStream) {
+        myInputStream = inputStream;
+        myReadAhead = inputStream.markSupported();
+        myBuffer = null;
+        myBytes = new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * @param buffer buffer read from its position, which is advanced past the value by read()
+     */
+    JsBinaryReader(final ByteBuffer buffer) {
+        myInputStream = null;
+        myReadAhead = false;
+        myBuffer = buffer;
+        myPos = buffer.position();
+        myLimit = buffer.limit();
+    }
+
+    JsonValue read() {
+        JsonValue jsonValue = readValue();
+        if (myBuffer != null) myBuffer.position(myPos);
+        else if (myReadAhead && myPos < myLimit) unread();
+        return jsonValue;
+    }
+
+    /**
+     * Reset stream to the end of the value, bytes read past it are read again by the next reader
+     */
+    private void unread() {
+        try {
+            myInputStream.reset();
+            long skip = myPos - myReadStart;
+            while (skip > 0) {
+                long skipped = myInputStream.skip(skip);
+                if (skipped <= 0) {
+                    if (myInputStream.read() < 0) throw unexpectedEnd();
+                    skipped = 1;
+                }
+                skip -= skipped;
+            }
+        } catch (IOException e) {
+            throw new JsonException("I/O error while reading binary JSON", e);
+        }
+    }
+
+    private JsonValue readValue() {
+        int tag = readByte();
+        switch (tag) {
+            case TAG_NULL:
+                return JsonValue.NULL;
+            case TAG_FALSE:
+                return JsonValue.FALSE;
+            case TAG_TRUE:
+                return JsonValue.TRUE;
+            case TAG_INT:
+                return new JsIntNumber((int) unzigzag(readVarInt()));
+            case TAG_LONG:
+                return new JsLongNumber(unzigzag(readVarInt()));
+            case TAG_DOUBLE: {
+                long bits;
+                if (myBuffer != null) {
+                    checkAvailable(8);
+                    bits = 0;
+                    for (int i = 0; i < 8; i++) {
+                        bits = (bits << 8) | (myBuffer.get(myPos++) & 0xff);
+                    }
+                } else {
+                    require(8);
+                    bits = 0;
+                    for (int i = 0; i < 8; i++) {
+                        bits = (bits << 8) | (myBytes[myPos++] & 0xff);
+                    }
+                }
+                return new JsDoubleNumber(Double.longBitsToDouble(bits));
+            }
+            case TAG_DECIMAL: {
+                int scale = (int) unzigzag(readVarInt());
+                return new JsBigDecimalNumber(BigDecimal.valueOf(unzigzag(readVarInt()), scale));
+            }
+            case TAG_BIG_DECIMAL: {
+                int scale = (int) unzigzag(readVarInt());
+                byte[] bytes = readBytes(readLength());
+                return new JsBigDecimalNumber(new BigDecimal(new BigInteger(bytes), scale));
+            }
+            case TAG_STRING:
+                return new JsString(readString());
+            case TAG_ARRAY: {
+                int count = readLength();
+                MutableJsArray jsArray = new MutableJsArray(Math.min(count, MAX_INITIAL_CAPACITY));
+                for (int i = 0; i < count; i++) {
+                    jsArray.myList.add(readValue());
+                }
+                return jsArray;
+            }
+            case TAG_OBJECT: {
+                int count = readLength();
+                MutableJsObject jsObject = new MutableJsObject(Math.min(count, MAX_INITIAL_CAPACITY));
+                for (int i = 0; i < count; i++) {
+                    String key = readString();
+                    jsObject.myMap.put(key, readValue());
+                }
+                return jsObject;
+            }
+            default:
+                throw new JsonException("Invalid binary JSON tag " + tag);
+        }
+    }
+
+    private String readString() {
+        int length = readLength();
+        if (myBuffer != null) {
+            checkAvailable(length);
+            String value = JsString.decode(myBuffer, myPos, myPos + length, false);
+            myPos += length;
+            return value;
+        }
+
+        require(length);
+        String value = new String(myBytes, myPos, length, StandardCharsets.UTF_8);
+        myPos += length;
+        return value;
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private int readLength() {
+        long length = readVarInt();
+        if (length < 0 || length > Integer.MAX_VALUE) {
+            throw new JsonException("Invalid binary JSON length " + length);
+        }
+        return (int) length;
+    }
+
+    private long readVarInt() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new JsonException("Invalid binary JSON varint");
+    }
+
+    private int readByte() {
+        if (myBuffer != null) {
+            checkAvailable(1);
+            return myBuffer.get(myPos++) & 0xff;
+        }
+
+        if (myPos >= myLimit) require(1);
+        return myBytes[myPos++] & 0xff;
+    }
+
+    private byte[] readBytes(int length) {
+        byte[] bytes;
+        if (myBuffer != null) {
+            checkAvailable(length);
+            bytes = new byte[length];
+            JsUtf8Parser.slice(myBuffer, myPos, myPos + length).get(bytes, 0, length);
+        } else {
+            require(length);
+            bytes = Arrays.copyOfRange(myBytes, myPos, myPos + length);
+        }
+        myPos += length;
+        return bytes;
+    }
+
+    /**
+     * Read from stream until length bytes are available in myBytes at myPos
+     * <p>
+     * The buffer grows only as bytes arrive, so a corrupt length fails with unexpected end of input
+     * instead of allocating the length up front.
+     *
+     * @param length number of bytes needed
+     */
+    private void require(int length) {
+        int available = myLimit - myPos;
+        if (available >= length) return;
+
+        System.arraycopy(myBytes, myPos, myBytes, 0, available);
+        myPos = 0;
+        myLimit = available;
+        myReadStart = available;
+
+        try {
+            if (myReadAhead) myInputStream.mark(Math.max(length, myBytes.length) - myLimit);
+            while (myLimit < length) {
+                if (myLimit == myBytes.length) {
+                    byte[] bytes = new byte[(int) Math.min((long) myBytes.length * 2, length)];
+                    System.arraycopy(myBytes, 0, bytes, 0, myLimit);
+                    myBytes = bytes;
+                }
+
+                // without read ahead only the needed bytes are read
+                int end = Math.min(myBytes.length, myLimit + BUFFER_SIZE);
+                if (!myReadAhead) end = Math.min(end, length);
+                int read = myInputStream.read(myBytes, myLimit, end - myLimit);
+                if (read < 0) throw unexpectedEnd();
+                myLimit += read;
+            }
+        } catch (IOException e) {
+            throw new JsonException("I/O error while reading binary JSON", e);
+        }
+    }
+
+    private void checkAvailable(int length) {
+        if (length > myLimit - myPos) throw unexpectedEnd();
+    }
+
+    private static JsonException unexpectedEnd() {
+        return new JsonException("Unexpected end of binary JSON");
+    }
+}
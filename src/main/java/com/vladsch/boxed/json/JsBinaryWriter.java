@@ -0,0 +1,269 @@
+package com.vladsch.boxed.json;
+
+import javax.json.JsonArray;
+import javax.json.JsonException;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writer of the compact binary encoding of json values
+ * <p>
+ * Each value is a tag byte followed by its contents. Lengths, counts and integers are unsigned
+ * LEB128 varints, signed values are zigzag encoded first:
+ * <ul>
+ * <li>NULL, FALSE, TRUE: no contents</li>
+ * <li>INT, LONG: zigzag varint, kept distinct so values are read back as JsIntNumber or JsLongNumber</li>
+ * <li>DOUBLE: 8 byte big endian IEEE 754 bits</li>
+ * <li>DECIMAL: zigzag varint scale, zigzag varint unscaled value which fits in a long</li>
+ * <li>BIG_DECIMAL: zigzag varint scale, varint length, big endian two's complement unscaled value</li>
+ * <li>STRING: varint length, UTF-8 bytes</li>
+ * <li>ARRAY: varint count, elements</li>
+ * <li>OBJECT: varint count, for each member varint key length, UTF-8 key bytes, value</li>
+ * </ul>
+ */
+final class JsBinaryWriter {
+    static final int TAG_NULL = 0;
+    static final int TAG_FALSE = 1;
+    static final int TAG_TRUE = 2;
+    static final int TAG_INT = 3;
+    static final int TAG_LONG = 4;
+    static final int TAG_DOUBLE = 5;
+    static final int TAG_DECIMAL = 6;
+    static final int TAG_BIG_DECIMAL = 7;
+    static final int TAG_STRING = 8;
+    static final int TAG_ARRAY = 9;
+    static final int TAG_OBJECT = 10;
+
+    static final int BUFFER_SIZE = 8192;
+
+    private final OutputStream myOutputStream;
+    private final byte[] myBytes;
+    private int myPos;
+
+    JsBinaryWriter(final OutputStream outputStream) {
+        myOutputStream = outputStream;
+        myBytes = new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * Write buffered bytes to the output stream and flush it
+     */
+    void flush() {
+        flushBuffer();
+        try {
+            myOutputStream.flush();
+        } catch (IOException e) {
+            throw new JsonException("I/O error while writing binary JSON", e);
+        }
+    }
+
+    void write(final JsonValue jsonValue) {
+        if (jsonValue == null) {
+            writeByte(TAG_NULL);
+            return;
+        }
+
+        switch (jsonValue.getValueType()) {
+            case OBJECT:
+                if (jsonValue instanceof MutableJsObject) {
+                    MutableJsMap<String> jsMap = ((MutableJsObject) jsonValue).myMap;
+                    writeObject(jsMap.size(), jsMap.rawEntrySet());
+                } else if (jsonValue instanceof JsLazyValue) {
+                    write(((JsLazyValue) jsonValue).materialize());
+                } else {
+                    JsonObject jsonObject = (JsonObject) jsonValue;
+                    writeObject(jsonObject.size(), jsonObject.entrySet());
+                }
+                break;
+
+            case ARRAY:
+                if (jsonValue instanceof MutableJsArray) {
+                    writeArray(((MutableJsArray) jsonValue).myList.rawList());
+                } else if (jsonValue instanceof JsLazyValue) {
+                    write(((JsLazyValue) jsonValue).materialize());
+                } else {
+                    writeArray((JsonArray) jsonValue);
+                }
+                break;
+
+            case STRING:
+                writeByte(TAG_STRING);
+                writeString(((JsonString) jsonValue).getString());
+                break;
+
+            case NUMBER:
+                writeNumber((JsonNumber) jsonValue);
+                break;
+
+            case TRUE:
+                writeByte(TAG_TRUE);
+                break;
+
+            case FALSE:
+                writeByte(TAG_FALSE);
+                break;
+
+            case NULL:
+                writeByte(TAG_NULL);
+                break;
+        }
+    }
+
+    private void writeObject(int size, Iterable<? extends Map.Entry<String, JsonValue>> entries) {
+        writeByte(TAG_OBJECT);
+        writeVarInt(size);
+        for (Map.Entry<String, JsonValue> entry : entries) {
+            writeString(entry.getKey());
+            write(entry.getValue());
+        }
+    }
+
+    private void writeArray(List<JsonValue> values) {
+        writeByte(TAG_ARRAY);
+        int iMax = values.size();
+        writeVarInt(iMax);
+        for (int i = 0; i < iMax; i++) {
+            write(values.get(i));
+        }
+    }
+
+    private void writeNumber(JsonNumber jsonNumber) {
+        if (jsonNumber instanceof JsIntNumber) {
+            writeByte(TAG_INT);
+            writeVarInt(zigzag(jsonNumber.intValue()));
+        } else if (jsonNumber instanceof JsLongNumber) {
+            writeByte(TAG_LONG);
+            writeVarInt(zigzag(jsonNumber.longValue()));
+        } else if (jsonNumber instanceof JsDoubleNumber) {
+            writeByte(TAG_DOUBLE);
+            long bits = Double.doubleToRawLongBits(jsonNumber.doubleValue());
+            ensureRoom(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                myBytes[myPos++] = (byte) (bits >>> shift);
+            }
+        } else {
+            BigDecimal value = jsonNumber.bigDecimalValue();
+            BigInteger unscaled = value.unscaledValue();
+            if (unscaled.bitLength() < 64) {
+                writeByte(TAG_DECIMAL);
+                writeVarInt(zigzag(value.scale()));
+                writeVarInt(zigzag(unscaled.longValue()));
+            } else {
+                writeByte(TAG_BIG_DECIMAL);
+                writeVarInt(zigzag(value.scale()));
+                byte[] bytes = unscaled.toByteArray();
+                writeVarInt(bytes.length);
+                writeBytes(bytes, 0, bytes.length);
+            }
+        }
+    }
+
+    private void writeString(String value) {
+        int length = value.length();
+        int utf8Length = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    utf8Length++;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    utf8Length += 2;
+                    i++;
+                } else if (!Character.isSurrogate(c)) {
+                    utf8Length += 2;
+                }
+            }
+        }
+
+        writeVarInt(utf8Length);
+        if (utf8Length == length) {
+            // ASCII, copied in buffer sized runs
+            int i = 0;
+            while (i < length) {
+                ensureRoom(1);
+                int count = Math.min(length - i, myBytes.length - myPos);
+                for (int j = 0; j < count; j++) {
+                    myBytes[myPos++] = (byte) value.charAt(i++);
+                }
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                ensureRoom(4);
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    myBytes[myPos++] = (byte) c;
+                } else if (c < 0x800) {
+                    myBytes[myPos++] = (byte) (0xc0 | (c >> 6));
+                    myBytes[myPos++] = (byte) (0x80 | (c & 0x3f));
+                } else if (!Character.isSurrogate(c)) {
+                    myBytes[myPos++] = (byte) (0xe0 | (c >> 12));
+                    myBytes[myPos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                    myBytes[myPos++] = (byte) (0x80 | (c & 0x3f));
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    myBytes[myPos++] = (byte) (0xf0 | (codePoint >> 18));
+                    myBytes[myPos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                    myBytes[myPos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                    myBytes[myPos++] = (byte) (0x80 | (codePoint & 0x3f));
+                } else {
+                    myBytes[myPos++] = '?';
+                }
+            }
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private void writeVarInt(long value) {
+        ensureRoom(10);
+        while ((value & ~0x7fL) != 0) {
+            myBytes[myPos++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        myBytes[myPos++] = (byte) value;
+    }
+
+    private void writeByte(int value) {
+        ensureRoom(1);
+        myBytes[myPos++] = (byte) value;
+    }
+
+    private void writeBytes(byte[] bytes, int offset, int length) {
+        if (length > myBytes.length - myPos) {
+            flushBuffer();
+            if (length > myBytes.length) {
+                try {
+                    myOutputStream.write(bytes, offset, length);
+                } catch (IOException e) {
+                    throw new JsonException("I/O error while writing binary JSON", e);
+                }
+                return;
+            }
+        }
+        System.arraycopy(bytes, offset, myBytes, myPos, length);
+        myPos += length;
+    }
+
+    private void ensureRoom(int length) {
+        if (myPos + length > myBytes.length) flushBuffer();
+    }
+
+    private void flushBuffer() {
+        try {
+            myOutputStream.write(myBytes, 0, myPos);
+            myPos = 0;
+        } catch (IOException e) {
+            throw new JsonException("I/O error while writing binary JSON", e);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.vladsch.boxed.json;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.json.JsonException;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+
+/**
+ * Json parser for char input, either a complete string or a reader read through a reusable buffer
+ */
+public class JsCharParser extends JsParser {
+    static final int BUFFER_SIZE = 8192;
+
+    private final Reader myReader;
+    private char[] myChars;
+
+    public JsCharParser(final @NotNull Reader reader) {
+        myReader = reader;
+        myChars = new char[BUFFER_SIZE];
+    }
+
+    public JsCharParser(final @NotNull String json) {
+        this(json.toCharArray(), 0, json.length());
+    }
+
+    public JsCharParser(final @NotNull char[] chars, int start, int end) {
+        myReader = null;
+        myChars = chars;
+        myPos = start;
+        myLimit = end;
+    }
+
+    @Override
+    protected boolean canReparse() {
+        return myReader == null;
+    }
+
+    @Override
+    protected JsParser subParser(final int start, final int end) {
+        if (myReader != null) return super.subParser(start, end);
+        return new JsCharParser(myChars, start, end);
+    }
+
+    @Override
+    protected void writeSource(final JsWriter writer, final int start, final int end) {
+        writer.write(myChars, start, end);
+    }
+
+    @Override
+    protected int unitAt(final int pos) {
+        return myChars[pos];
+    }
+
+    @Override
+    protected boolean fill() {
+        if (myReader == null) return false;
+
+        int keep = myMark >= 0 ? myMark : myPos;
+        if (keep > 0) {
+            System.arraycopy(myChars, keep, myChars, 0, myLimit - keep);
+            myOffset += keep;
+            myPos -= keep;
+            myLimit -= keep;
+            if (myMark >= 0) myMark -= keep;
+        }
+
+        if (myLimit == myChars.length) {
+            char[] chars = new char[myChars.length * 2];
+            System.arraycopy(myChars, 0, chars, 0, myLimit);
+            myChars = chars;
+        }
+
+        try {
+            int read;
+            do {
+                read = myReader.read(myChars, myLimit, myChars.length - myLimit);
+            } while (read == 0);
+
+            if (read < 0) return false;
+            myLimit += read;
+            return true;
+        } catch (IOException e) {
+            throw new JsonException("I/O error while parsing JSON", e);
+        }
+    }
+
+    @Override
+    protected String parseString() {
+        char[] chars = myChars;
+        int start = myPos;
+
+        // fast path: whole string is in the buffer without escapes
+        for (int i = start; i < myLimit; i++) {
+            char c = chars[i];
+            if (c == '"') {
+                myPos = i + 1;
+                return new String(chars, start, i - start);
+            }
+            if (c == '\\' || c < ' ') break;
+        }
+
+        StringBuilder sb = myStringBuilder;
+        sb.setLength(0);
+
+        for (; ; ) {
+            if (myPos >= myLimit && !fill()) throw unexpected(-1, "'\"'");
+
+            chars = myChars;
+            int run = myPos;
+            char c = 0;
+            while (run < myLimit && (c = chars[run]) != '"' && c != '\\' && c >= ' ') run++;
+            sb.append(chars, myPos, run - myPos);
+            myPos = run;
+
+            if (run < myLimit) {
+                if (c == '"') {
+                    myPos++;
+                    return sb.toString();
+                } else if (c == '\\') {
+                    myPos++;
+                    sb.append(parseEscape());
+                } else {
+                    throw unexpected(c, "string character");
+                }
+            }
+        }
+    }
+
+    @Override
+    protected BigDecimal parseDecimal(final int start, final int end) {
+        return new BigDecimal(myChars, start, end - start);
+    }
+}
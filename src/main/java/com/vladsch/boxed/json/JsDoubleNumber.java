@@ -0,0 +1,139 @@
+package com.vladsch.boxed.json;
+
+import java.math.BigDecimal;
+
+/**
+ * Number value of a double, equivalent to a JsBigDecimalNumber of BigDecimal.valueOf(double) whose
+ * BigDecimal is only created when requested
+ */
+public final class JsDoubleNumber extends JsNumber {
+    private final double num;
+    private BigDecimal bigDecimal;
+
+    /**
+     * @param num value
+     * @throws NumberFormatException if value is infinite or NaN
+     */
+    public JsDoubleNumber(double num) {
+        if (Double.isNaN(num) || Double.isInfinite(num)) {
+            throw new NumberFormatException("Infinite or NaN");
+        }
+        this.num = num;
+    }
+
+    public double doubleValue() {
+        return this.num;
+    }
+
+    public BigDecimal bigDecimalValue() {
+        BigDecimal bd = this.bigDecimal;
+        if (bd == null) {
+            this.bigDecimal = bd = BigDecimal.valueOf(this.num);
+        }
+        return bd;
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder(32);
+        append(sb, this.num);
+        return sb.toString();
+    }
+
+    /**
+     * Append double in BigDecimal.valueOf(double).toString() form
+     * <p>
+     * BigDecimal.valueOf() uses the digits of Double.toString(), which StringBuilder.append(double)
+     * appends without creating a String. These are rearranged into BigDecimal.toString() layout.
+     *
+     * @param sb  string builder
+     * @param num finite value
+     */
+    static void append(StringBuilder sb, double num) {
+        int start = sb.length();
+        sb.append(num);
+        int end = sb.length();
+
+        // Double.toString() form: [-]digits.digits[E[-]digits]
+        int i = start;
+        boolean negative = sb.charAt(i) == '-';
+        if (negative) i++;
+
+        int dot = -1;
+        int mantissaEnd = end;
+        int exponent = 0;
+        for (int j = i; j < end; j++) {
+            char c = sb.charAt(j);
+            if (c == '.') {
+                dot = j;
+            } else if (c == 'E') {
+                mantissaEnd = j;
+                boolean negativeExponent = sb.charAt(j + 1) == '-';
+                for (int k = negativeExponent ? j + 2 : j + 1; k < end; k++) {
+                    exponent = exponent * 10 + sb.charAt(k) - '0';
+                }
+                if (negativeExponent) exponent = -exponent;
+                break;
+            }
+        }
+
+        // unscaled value is mantissa digits without leading zeros, scale is fraction digits less exponent
+        int scale = (dot < 0 ? 0 : mantissaEnd - dot - 1) - exponent;
+        int first = i;
+        while (first < mantissaEnd && (sb.charAt(first) == '0' || sb.charAt(first) == '.')) first++;
+
+        boolean isZero = first == mantissaEnd;
+        int precision = isZero ? 1 : mantissaEnd - first - (dot > first ? 1 : 0);
+        int adjusted = precision - scale - 1;
+
+        if (negative && !isZero) sb.append('-');
+
+        if (isZero) {
+            first = mantissaEnd - 1;
+            if (sb.charAt(first) == '.') first--;
+        }
+
+        if (scale == 0) {
+            appendDigits(sb, first, mantissaEnd, 0, precision);
+        } else if (scale > 0 && adjusted >= -6) {
+            int pad = scale - precision;
+            if (pad >= 0) {
+                sb.append('0').append('.');
+                while (pad-- > 0) sb.append('0');
+                appendDigits(sb, first, mantissaEnd, 0, precision);
+            } else {
+                appendDigits(sb, first, mantissaEnd, 0, -pad);
+                sb.append('.');
+                appendDigits(sb, first, mantissaEnd, -pad, precision);
+            }
+        } else {
+            appendDigits(sb, first, mantissaEnd, 0, 1);
+            if (precision > 1) {
+                sb.append('.');
+                appendDigits(sb, first, mantissaEnd, 1, precision);
+            }
+            sb.append('E');
+            if (adjusted > 0) sb.append('+');
+            sb.append(adjusted);
+        }
+
+        sb.delete(start, end);
+    }
+
+    /**
+     * Append digits of unscaled value
+     *
+     * @param sb    string builder
+     * @param first position of first digit
+     * @param end   end of digits
+     * @param from  index of first digit to append
+     * @param to    index after last digit to append
+     */
+    private static void appendDigits(StringBuilder sb, int first, int end, int from, int to) {
+        int index = 0;
+        for (int j = first; j < end && index < to; j++) {
+            char c = sb.charAt(j);
+            if (c == '.') continue;
+            if (index++ >= from) sb.append(c);
+        }
+    }
+}
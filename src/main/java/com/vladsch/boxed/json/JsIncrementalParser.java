@@ -0,0 +1,143 @@
+package com.vladsch.boxed.json;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.json.stream.JsonParsingException;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Push parser for UTF-8 json objects arriving in arbitrary chunks, such as websocket message fragments
+ * <p>
+ * Chunks are passed to feed() as they arrive and each top level object is passed to the consumer
+ * as soon as it is complete. Objects wholly contained in one chunk are parsed directly from it,
+ * only objects spanning chunks are accumulated in an internal buffer.
+ * <p>
+ * Chunk contents are not referenced by parsed values and can be reused after feed() returns.
+ */
+public class JsIncrementalParser {
+    private final @NotNull Consumer<? super BoxedJsObject> myConsumer;
+    private final JsUtf8Parser myParser;
+    private byte[] myPending;
+    private int myPendingLength;
+    private long myOffset;
+
+    // scan state of current top level object, carried across chunks
+    private int myDepth;
+    private boolean myInString;
+    private boolean myEscape;
+
+    public JsIncrementalParser(final @NotNull Consumer<? super BoxedJsObject> consumer) {
+        myConsumer = consumer;
+        myParser = new JsUtf8Parser(ByteBuffer.allocate(0), true);
+        myPending = new byte[0];
+    }
+
+    /**
+     * @return true if a partial object is waiting for more input
+     */
+    public boolean isPending() {
+        return myDepth > 0;
+    }
+
+    /**
+     * Discard partial object and start with a new one
+     */
+    public void reset() {
+        myPendingLength = 0;
+        myDepth = 0;
+        myInString = false;
+        myEscape = false;
+    }
+
+    public void feed(final @NotNull byte[] bytes) {
+        feed(ByteBuffer.wrap(bytes));
+    }
+
+    public void feed(final @NotNull byte[] bytes, int offset, int length) {
+        feed(ByteBuffer.wrap(bytes, offset, length));
+    }
+
+    /**
+     * Feed next chunk of input, consumer is called for every object completed by the chunk
+     *
+     * @param buffer bytes from position to limit are consumed, position is set to limit
+     * @throws JsonParsingException if input is not a valid sequence of json objects, the partial object is discarded
+     */
+    public void feed(final @NotNull ByteBuffer buffer) {
+        int limit = buffer.limit();
+        int start = myDepth > 0 ? buffer.position() : -1;
+
+        for (int i = buffer.position(); i < limit; i++) {
+            int c = buffer.get(i);
+
+            if (myDepth == 0) {
+                if (c == ' ' || c == '\n' || c == '\r' || c == '\t') continue;
+
+                if (c != '{') {
+                    long offset = myOffset + i - buffer.position();
+                    buffer.position(i + 1);
+                    myOffset = offset + 1;
+                    reset();
+                    throw new JsonParsingException("Unexpected '" + (char) (c & 0xff) + "', expected '{' at offset " + offset, new JsParser.Location(offset));
+                }
+
+                start = i;
+                myDepth = 1;
+            } else if (myInString) {
+                if (myEscape) {
+                    myEscape = false;
+                } else if (c == '\\') {
+                    myEscape = true;
+                } else if (c == '"') {
+                    myInString = false;
+                }
+            } else if (c == '"') {
+                myInString = true;
+            } else if (c == '{' || c == '[') {
+                myDepth++;
+            } else if (c == '}' || c == ']') {
+                if (--myDepth == 0) {
+                    myOffset += i + 1 - buffer.position();
+                    buffer.position(i + 1);
+                    complete(buffer, start, i + 1);
+                    start = -1;
+                }
+            }
+        }
+
+        if (myDepth > 0) {
+            append(buffer, start, limit);
+        }
+        myOffset += limit - buffer.position();
+        buffer.position(limit);
+    }
+
+    private void append(ByteBuffer buffer, int start, int end) {
+        int length = end - start;
+        if (myPendingLength + length > myPending.length) {
+            byte[] pending = new byte[Math.max(myPending.length * 2, myPendingLength + length)];
+            System.arraycopy(myPending, 0, pending, 0, myPendingLength);
+            myPending = pending;
+        }
+
+        JsUtf8Parser.slice(buffer, start, end).get(myPending, myPendingLength, length);
+        myPendingLength += length;
+    }
+
+    private void complete(ByteBuffer buffer, int start, int end) {
+        MutableJsObject jsObject;
+        try {
+            if (myPendingLength > 0) {
+                append(buffer, start, end);
+                myParser.reset(ByteBuffer.wrap(myPending, 0, myPendingLength));
+            } else {
+                myParser.reset(JsUtf8Parser.slice(buffer, start, end));
+            }
+            jsObject = myParser.readObject();
+        } finally {
+            reset();
+        }
+        myConsumer.accept(BoxedJson.boxedOf(jsObject));
+    }
+}
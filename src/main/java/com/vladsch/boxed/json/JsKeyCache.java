@@ -0,0 +1,80 @@
+package com.vladsch.boxed.json;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Bounded cache of object keys shared by parsers, so repeated keys of parsed documents are the same
+ * String instance instead of a new String for every key of every document
+ * <p>
+ * The cache is direct mapped: a key's hash selects its slot and a new key replaces whatever key was in
+ * the slot. Lookups and updates take no locks, a racing update at worst loses a cached key.
+ * <p>
+ * Only keys up to MAX_KEY_LENGTH are cached.
+ */
+public final class JsKeyCache {
+    public static final int DEFAULT_SIZE = 1024;
+    public static final int MAX_KEY_LENGTH = 64;
+
+    private final String[] mySlots;
+    private final int myMask;
+
+    public JsKeyCache() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * @param size number of cached keys, rounded up to a power of 2
+     */
+    public JsKeyCache(int size) {
+        if (size <= 0) throw new IllegalArgumentException("Key cache size must be positive");
+        int slots = Integer.highestOneBit(size);
+        if (slots < size) slots <<= 1;
+        mySlots = new String[slots];
+        myMask = slots - 1;
+    }
+
+    public int size() {
+        return mySlots.length;
+    }
+
+    /**
+     * Discard all cached keys
+     */
+    public void clear() {
+        String[] slots = mySlots;
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = null;
+        }
+    }
+
+    /**
+     * @param key key
+     * @return cached instance equal to key, key if none and key is now cached
+     */
+    @NotNull
+    public String intern(@NotNull String key) {
+        if (key.length() > MAX_KEY_LENGTH) return key;
+
+        int slot = slot(key.hashCode());
+        String cached = mySlots[slot];
+        if (key.equals(cached)) return cached;
+        mySlots[slot] = key;
+        return key;
+    }
+
+    /**
+     * @param hash String.hashCode() of key
+     * @return key in slot for hash, caller must compare it to the key being looked up
+     */
+    String get(int hash) {
+        return mySlots[slot(hash)];
+    }
+
+    void put(int hash, String key) {
+        mySlots[slot(hash)] = key;
+    }
+
+    private int slot(int hash) {
+        return (hash ^ (hash >>> 16)) & myMask;
+    }
+}
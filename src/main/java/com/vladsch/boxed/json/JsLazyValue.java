@@ -0,0 +1,76 @@
+package com.vladsch.boxed.json;
+
+import javax.json.JsonValue;
+
+/**
+ * Unparsed object or array of a lazily parsed document
+ * <p>
+ * Kept in MutableJsMap and MutableJsList until first accessed, when it is replaced by the
+ * MutableJsObject or MutableJsArray parsed from its source range. Nested values of the
+ * materialized value are again lazy.
+ */
+final class JsLazyValue implements JsonValue {
+    private final JsParser myParser;
+    private final int myStart;
+    private final int myEnd;
+    private final ValueType myValueType;
+    private final JsSource myParentSource;
+    private JsonValue myValue;
+
+    JsLazyValue(final JsParser parser, final int start, final int end, final ValueType valueType, final JsSource parentSource) {
+        myParser = parser;
+        myStart = start;
+        myEnd = end;
+        myValueType = valueType;
+        myParentSource = parentSource;
+    }
+
+    /**
+     * @return parsed MutableJsObject or MutableJsArray, always the same instance
+     */
+    JsonValue materialize() {
+        JsonValue value = myValue;
+        if (value == null) {
+            JsParser parser = myParser.subParser(myStart, myEnd);
+            parser.setLazy(true);
+            parser.setKeyCache(myParser.getKeyCache());
+            if (myParser.isKeepSource()) {
+                parser.setKeepSource(true);
+                parser.myParentSource = myParentSource;
+            }
+            value = myValueType == ValueType.OBJECT ? parser.readObject() : parser.readArray();
+            myValue = value;
+        }
+        return value;
+    }
+
+    /**
+     * @param writer writer
+     * @return true if not materialized and source was written
+     */
+    boolean writeSource(JsWriter writer) {
+        if (myValue != null || !myParser.isKeepSource() || !writer.canWriteSource()) return false;
+        myParser.writeSource(writer, myStart, myEnd);
+        return true;
+    }
+
+    @Override
+    public ValueType getValueType() {
+        return myValueType;
+    }
+
+    @Override
+    public int hashCode() {
+        return materialize().hashCode();
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return this == obj || materialize().equals(obj instanceof JsLazyValue ? ((JsLazyValue) obj).materialize() : obj);
+    }
+
+    @Override
+    public String toString() {
+        return materialize().toString();
+    }
+}
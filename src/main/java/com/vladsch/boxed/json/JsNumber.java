@@ -21,11 +21,11 @@ public abstract class JsNumber implements JsonNumber {
     }
 
     public static JsNumber of(double value) {
-        return new JsBigDecimalNumber(BigDecimal.valueOf(value));
+        return new JsDoubleNumber(value);
     }
 
     public static JsNumber of(float value) {
-        return new JsBigDecimalNumber(BigDecimal.valueOf(value));
+        return new JsDoubleNumber(value);
     }
 
     public static JsNumber of(BigDecimal value) {
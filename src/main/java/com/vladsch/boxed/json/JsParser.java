@@ -0,0 +1,993 @@
+package com.vladsch.boxed.json;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.json.JsonException;
+import javax.json.JsonValue;
+import javax.json.stream.JsonLocation;
+import javax.json.stream.JsonParsingException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PushbackInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Tokenizer and recursive descent parser which builds mutable json values directly
+ * <p>
+ * Produces MutableJsObject, MutableJsArray, JsString and JsNumber values in a single pass, without
+ * an intermediate GlassFish JsonObject/JsonArray tree which would have to be copied.
+ * <p>
+ * Subclasses provide the input units. All structural json tokens are ASCII so the grammar is
+ * shared, only string and number extraction depend on the input representation.
+ */
+public abstract class JsParser {
+    private static volatile JsKeyCache ourDefaultKeyCache;
+
+    protected int myPos;        // position of next unit to parse
+    protected int myLimit;      // end of available units
+    protected int myMark = -1;  // start of token which must be preserved by fill(), -1 if none
+    protected long myOffset;    // units discarded by fill() before the start of the buffer
+    protected boolean myLazy;   // nested objects and arrays are only scanned, see setLazy()
+    protected boolean myKeepSource; // parsed objects and arrays keep their source range, see setKeepSource()
+    JsSource myParentSource;    // source of object or array being parsed
+    protected JsKeyCache myKeyCache = ourDefaultKeyCache;
+    protected final StringBuilder myStringBuilder = new StringBuilder();
+    private char[] myClosers;    // closing brace or bracket of each open container in skipContainer()
+
+    /**
+     * @param pos position of unit, must be less than myLimit
+     * @return unit at position
+     */
+    protected abstract int unitAt(int pos);
+
+    /**
+     * Make more input available
+     * <p>
+     * Implementation can move buffer contents, in which case it must adjust myPos, myLimit, myMark and myOffset
+     * so that units from myMark, or myPos if no mark is set, are preserved.
+     *
+     * @return true if more units were made available, false if end of input
+     */
+    protected abstract boolean fill();
+
+    /**
+     * Parse string contents, called with myPos after the opening quote and must leave it after the closing quote
+     *
+     * @return string value
+     */
+    protected abstract String parseString();
+
+    /**
+     * @param start start of number
+     * @param end   end of number
+     * @return decimal value of the number at given position
+     */
+    protected abstract BigDecimal parseDecimal(int start, int end);
+
+    /**
+     * Reparse support for lazy values, only possible when the complete input is retained by the parser
+     *
+     * @return true if subParser() can be used
+     */
+    protected boolean canReparse() {
+        return false;
+    }
+
+    /**
+     * Create a new parser for a range of this parser's input
+     *
+     * @param start start of range
+     * @param end   end of range
+     * @return parser for the range
+     */
+    protected JsParser subParser(int start, int end) {
+        throw new IllegalStateException("Parser input cannot be reparsed");
+    }
+
+    public boolean isLazy() {
+        return myLazy;
+    }
+
+    /**
+     * Set lazy parsing mode
+     * <p>
+     * In lazy mode only the top level value is parsed. Nested objects and arrays are scanned to find
+     * their end and kept as source ranges, to be parsed when first accessed through MutableJsMap.get() or
+     * MutableJsList.get(). Syntax errors in nested values are reported when they are accessed.
+     *
+     * @param lazy true for lazy parsing
+     */
+    public void setLazy(final boolean lazy) {
+        if (lazy && !canReparse()) {
+            throw new IllegalStateException("Lazy parsing requires complete input");
+        }
+        myLazy = lazy;
+    }
+
+    public boolean isKeepSource() {
+        return myKeepSource;
+    }
+
+    /**
+     * Set keep source mode
+     * <p>
+     * Parsed objects and arrays keep a reference to their source text, which is copied as is when they
+     * are written and neither they nor any of their nested values were modified. Only the path to
+     * modified values is written from values. Output of unmodified values keeps the whitespace and
+     * number and string formatting of the source.
+     *
+     * @param keepSource true to keep source
+     */
+    public void setKeepSource(final boolean keepSource) {
+        if (keepSource && !canReparse()) {
+            throw new IllegalStateException("Keeping source requires complete input");
+        }
+        myKeepSource = keepSource;
+    }
+
+    /**
+     * Write source text of range to writer, only called when source is kept
+     *
+     * @param writer writer
+     * @param start  start of range
+     * @param end    end of range
+     */
+    protected void writeSource(JsWriter writer, int start, int end) {
+        throw new IllegalStateException("Parser input cannot be reparsed");
+    }
+
+    @Nullable
+    public static JsKeyCache getDefaultKeyCache() {
+        return ourDefaultKeyCache;
+    }
+
+    /**
+     * Set key cache used by parsers created after this call, including parsers created by
+     * MutableJson and BoxedJson methods
+     *
+     * @param keyCache key cache or null to not intern keys
+     */
+    public static void setDefaultKeyCache(@Nullable final JsKeyCache keyCache) {
+        ourDefaultKeyCache = keyCache;
+    }
+
+    /**
+     * Create parser for json input stream, encoding is detected from the first bytes as in RFC 4627
+     * <p>
+     * A byte order mark is skipped. UTF-8 input is parsed by JsUtf8Parser, UTF-16 and UTF-32 input
+     * is decoded to chars for JsCharParser.
+     *
+     * @param inputStream json input
+     * @return parser for input
+     */
+    static JsParser of(final @NotNull InputStream inputStream) {
+        PushbackInputStream pushbackStream = new PushbackInputStream(inputStream, 4);
+        byte[] bytes = new byte[4];
+        int length = 0;
+        try {
+            while (length < 4) {
+                int read = pushbackStream.read(bytes, length, 4 - length);
+                if (read < 0) break;
+                length += read;
+            }
+        } catch (IOException e) {
+            throw new JsonException("I/O error while parsing JSON", e);
+        }
+
+        int b0 = length > 0 ? bytes[0] & 0xff : -1;
+        int b1 = length > 1 ? bytes[1] & 0xff : -1;
+        int b2 = length > 2 ? bytes[2] & 0xff : -1;
+        int b3 = length > 3 ? bytes[3] & 0xff : -1;
+
+        Charset charset;
+        int skip = 0;
+        if (b0 == 0xEF && b1 == 0xBB && b2 == 0xBF) {
+            // skipped by JsUtf8Parser
+            charset = null;
+        } else if (b0 == 0x00 && b1 == 0x00 && b2 == 0xFE && b3 == 0xFF) {
+            charset = Charset.forName("UTF-32BE");
+            skip = 4;
+        } else if (b0 == 0xFF && b1 == 0xFE && b2 == 0x00 && b3 == 0x00) {
+            charset = Charset.forName("UTF-32LE");
+            skip = 4;
+        } else if (b0 == 0xFE && b1 == 0xFF) {
+            charset = StandardCharsets.UTF_16BE;
+            skip = 2;
+        } else if (b0 == 0xFF && b1 == 0xFE) {
+            charset = StandardCharsets.UTF_16LE;
+            skip = 2;
+        } else if (b0 == 0x00 && b1 == 0x00 && b2 == 0x00 && b3 > 0x00) {
+            charset = Charset.forName("UTF-32BE");
+        } else if (b0 > 0x00 && b1 == 0x00 && b2 == 0x00 && b3 == 0x00) {
+            charset = Charset.forName("UTF-32LE");
+        } else if (b0 == 0x00 && b1 > 0x00) {
+            charset = StandardCharsets.UTF_16BE;
+        } else if (b0 > 0x00 && b1 == 0x00) {
+            charset = StandardCharsets.UTF_16LE;
+        } else {
+            charset = null;
+        }
+
+        try {
+            if (length > skip) pushbackStream.unread(bytes, skip, length - skip);
+        } catch (IOException e) {
+            throw new JsonException("I/O error while parsing JSON", e);
+        }
+
+        if (charset == null) return new JsUtf8Parser(pushbackStream);
+        return new JsCharParser(new InputStreamReader(pushbackStream, charset));
+    }
+
+    @Nullable
+    public JsKeyCache getKeyCache() {
+        return myKeyCache;
+    }
+
+    /**
+     * @param keyCache key cache for object keys or null to not intern keys
+     */
+    public void setKeyCache(@Nullable final JsKeyCache keyCache) {
+        myKeyCache = keyCache;
+    }
+
+    protected JsNumber parseDecimalNumber(int start, int end) {
+        return new JsBigDecimalNumber(parseDecimal(start, end));
+    }
+
+    protected JsonValue parseStringValue() {
+        return new JsString(parseString());
+    }
+
+    protected String parseKey() {
+        JsKeyCache keyCache = myKeyCache;
+        if (keyCache == null) return parseString();
+
+        // ASCII keys without escapes are looked up without creating a String, their units are chars
+        int start = myPos;
+        int end = Math.min(myLimit, start + JsKeyCache.MAX_KEY_LENGTH + 1);
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            int c = unitAt(i);
+            if (c == '"') {
+                myPos = i + 1;
+                String key = keyCache.get(hash);
+                if (key == null || !matches(key, start, i)) {
+                    key = newKey(start, i);
+                    keyCache.put(hash, key);
+                }
+                return key;
+            }
+            if (c == '\\' || c < ' ' || c >= 0x80) break;
+            hash = 31 * hash + c;
+        }
+        return keyCache.intern(parseString());
+    }
+
+    private boolean matches(String key, int start, int end) {
+        if (key.length() != end - start) return false;
+        for (int i = start; i < end; i++) {
+            if (key.charAt(i - start) != unitAt(i)) return false;
+        }
+        return true;
+    }
+
+    private String newKey(int start, int end) {
+        StringBuilder sb = myStringBuilder;
+        sb.setLength(0);
+        for (int i = start; i < end; i++) {
+            sb.append((char) unitAt(i));
+        }
+        return sb.toString();
+    }
+
+    public MutableJsObject readObject() {
+        int c = skipWhitespace();
+        if (c != '{') throw unexpected(c, "'{'");
+        myPos++;
+        MutableJsObject jsObject = parseObject();
+        expectEnd();
+        return jsObject;
+    }
+
+    public MutableJsArray readArray() {
+        int c = skipWhitespace();
+        if (c != '[') throw unexpected(c, "'['");
+        myPos++;
+        MutableJsArray jsArray = parseArray();
+        expectEnd();
+        return jsArray;
+    }
+
+    public JsonValue readValue() {
+        JsonValue jsonValue = parseValue(skipWhitespace());
+        expectEnd();
+        return jsonValue;
+    }
+
+    /**
+     * Test for more values in input with a sequence of values, such as json lines
+     *
+     * @return true if input has more non-whitespace units
+     */
+    public boolean hasNext() {
+        return skipWhitespace() != -1;
+    }
+
+    /**
+     * Read next value of input with a sequence of values, such as json lines. Values must be separated by whitespace.
+     *
+     * @return next value
+     */
+    public JsonValue nextValue() {
+        JsonValue jsonValue = parseValue(skipWhitespace());
+        expectSeparator();
+        return jsonValue;
+    }
+
+    /**
+     * Read next object of json lines input. Objects must be on separate lines, blank lines are skipped.
+     *
+     * @return next object
+     */
+    public MutableJsObject nextObject() {
+        int c = skipWhitespace();
+        if (c != '{') throw unexpected(c, "'{'");
+        myPos++;
+        MutableJsObject jsObject = parseObject();
+        expectLineEnd();
+        return jsObject;
+    }
+
+    /**
+     * Iterate over elements of the top level array, parsing one element at a time without
+     * creating the array. With streaming input memory use is bounded by the largest element.
+     *
+     * @return iterator over array elements
+     */
+    public Iterator<JsonValue> arrayElements() {
+        return new Iterator<JsonValue>() {
+            static final int START = 0;
+            static final int READY = 1;
+            static final int AFTER_ELEMENT = 2;
+            static final int END = 3;
+
+            int myState = START;
+
+            @Override
+            public boolean hasNext() {
+                int c;
+                switch (myState) {
+                    case START:
+                        c = skipWhitespace();
+                        if (c != '[') throw unexpected(c, "'['");
+                        myPos++;
+                        c = skipWhitespace();
+                        if (c == ']') {
+                            myPos++;
+                            expectEnd();
+                            myState = END;
+                        } else {
+                            myState = READY;
+                        }
+                        break;
+
+                    case AFTER_ELEMENT:
+                        c = skipWhitespace();
+                        if (c == ',') {
+                            myPos++;
+                            myState = READY;
+                        } else if (c == ']') {
+                            myPos++;
+                            expectEnd();
+                            myState = END;
+                        } else {
+                            throw unexpected(c, "',' or ']'");
+                        }
+                        break;
+                }
+                return myState == READY;
+            }
+
+            @Override
+            public JsonValue next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                JsonValue jsonValue = parseValue(skipWhitespace());
+                myState = AFTER_ELEMENT;
+                return jsonValue;
+            }
+        };
+    }
+
+    protected void expectSeparator() {
+        int c = peek();
+        if (c != -1 && c != ' ' && c != '\n' && c != '\r' && c != '\t') throw unexpected(c, "whitespace or end of input");
+    }
+
+    protected void expectLineEnd() {
+        int c = peek();
+        while (c == ' ' || c == '\t') {
+            myPos++;
+            c = peek();
+        }
+
+        if (c == '\r') {
+            myPos++;
+            c = peek();
+            if (c != '\n') throw unexpected(c, "new line");
+        }
+
+        if (c == '\n') myPos++;
+        else if (c != -1) throw unexpected(c, "new line or end of input");
+    }
+
+    /**
+     * Read object keeping only values on the given paths, other values are skipped without being created
+     * <p>
+     * Array elements before a selected index, which are not selected themselves, are replaced by null
+     * so that selected elements keep their index.
+     *
+     * @param selection paths to select
+     * @return object with selected values
+     */
+    MutableJsObject readSelected(JsPathTrie selection) {
+        int c = skipWhitespace();
+        if (c != '{') throw unexpected(c, "'{'");
+        myPos++;
+        MutableJsObject jsObject = parseSelectedObject(selection);
+        expectEnd();
+        return jsObject;
+    }
+
+    protected void expectEnd() {
+        int c = skipWhitespace();
+        if (c != -1) throw unexpected(c, "end of input");
+    }
+
+    protected final int peek() {
+        if (myPos >= myLimit && !fill()) return -1;
+        return unitAt(myPos);
+    }
+
+    protected final int skipWhitespace() {
+        for (; ; ) {
+            if (myPos >= myLimit && !fill()) return -1;
+            int c = unitAt(myPos);
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') return c;
+            myPos++;
+        }
+    }
+
+    protected JsonValue parseValue(int c) {
+        switch (c) {
+            case '{':
+                myPos++;
+                return parseObject();
+            case '[':
+                myPos++;
+                return parseArray();
+            case '"':
+                myPos++;
+                return parseStringValue();
+            case 't':
+                parseLiteral("true");
+                return JsonValue.TRUE;
+            case 'f':
+                parseLiteral("false");
+                return JsonValue.FALSE;
+            case 'n':
+                parseLiteral("null");
+                return JsonValue.NULL;
+            default:
+                if (c == '-' || isDigit(c)) return parseNumber();
+                throw unexpected(c, "value");
+        }
+    }
+
+    protected JsonValue parseNestedValue(int c) {
+        if (myLazy && (c == '{' || c == '[')) {
+            int start = myPos;
+            skipContainer();
+            return new JsLazyValue(this, start, myPos, c == '{' ? JsonValue.ValueType.OBJECT : JsonValue.ValueType.ARRAY, myParentSource);
+        }
+        return parseValue(c);
+    }
+
+    protected MutableJsObject parseObject() {
+        MutableJsObject jsObject = new MutableJsObject();
+        if (myKeepSource) {
+            JsSource source = enterSource();
+            parseMembers(jsObject);
+            jsObject.myMap.mySource = exitSource(source);
+        } else {
+            parseMembers(jsObject);
+        }
+        return jsObject;
+    }
+
+    private void parseMembers(MutableJsObject jsObject) {
+        int c = skipWhitespace();
+        if (c == '}') {
+            myPos++;
+            return;
+        }
+
+        for (; ; ) {
+            if (c != '"') throw unexpected(c, "object key");
+            myPos++;
+            String key = parseKey();
+            c = skipWhitespace();
+            if (c != ':') throw unexpected(c, "':'");
+            myPos++;
+            jsObject.myMap.put(key, parseNestedValue(skipWhitespace()));
+
+            c = skipWhitespace();
+            if (c == ',') {
+                myPos++;
+                c = skipWhitespace();
+            } else if (c == '}') {
+                myPos++;
+                return;
+            } else {
+                throw unexpected(c, "',' or '}'");
+            }
+        }
+    }
+
+    protected MutableJsArray parseArray() {
+        MutableJsArray jsArray = new MutableJsArray();
+        if (myKeepSource) {
+            JsSource source = enterSource();
+            parseElements(jsArray);
+            jsArray.myList.mySource = exitSource(source);
+        } else {
+            parseElements(jsArray);
+        }
+        return jsArray;
+    }
+
+    private void parseElements(MutableJsArray jsArray) {
+        int c = skipWhitespace();
+        if (c == ']') {
+            myPos++;
+            return;
+        }
+
+        for (; ; ) {
+            jsArray.add(parseNestedValue(c));
+
+            c = skipWhitespace();
+            if (c == ',') {
+                myPos++;
+                c = skipWhitespace();
+            } else if (c == ']') {
+                myPos++;
+                return;
+            } else {
+                throw unexpected(c, "',' or ']'");
+            }
+        }
+    }
+
+    /**
+     * Start source of object or array, called with myPos after its opening bracket
+     */
+    private JsSource enterSource() {
+        JsSource source = new JsSource(this, myPos - 1, myParentSource);
+        myParentSource = source;
+        return source;
+    }
+
+    private JsSource exitSource(JsSource source) {
+        source.myEnd = myPos;
+        myParentSource = source.myParent;
+        return source;
+    }
+
+    private JsonValue parseSelectedValue(int c, JsPathTrie selection) {
+        if (!selection.isLeaf()) {
+            if (c == '{') {
+                myPos++;
+                return parseSelectedObject(selection);
+            } else if (c == '[') {
+                myPos++;
+                return parseSelectedArray(selection);
+            }
+        }
+        return parseValue(c);
+    }
+
+    private MutableJsObject parseSelectedObject(JsPathTrie selection) {
+        MutableJsObject jsObject = new MutableJsObject();
+        int c = skipWhitespace();
+        if (c == '}') {
+            myPos++;
+            return jsObject;
+        }
+
+        for (; ; ) {
+            if (c != '"') throw unexpected(c, "object key");
+            myPos++;
+            String key = parseKey();
+            c = skipWhitespace();
+            if (c != ':') throw unexpected(c, "':'");
+            myPos++;
+
+            c = skipWhitespace();
+            JsPathTrie child = selection.get(key);
+            if (child == null) {
+                skipValue(c);
+            } else {
+                jsObject.myMap.put(key, parseSelectedValue(c, child));
+            }
+
+            c = skipWhitespace();
+            if (c == ',') {
+                myPos++;
+                c = skipWhitespace();
+            } else if (c == '}') {
+                myPos++;
+                return jsObject;
+            } else {
+                throw unexpected(c, "',' or '}'");
+            }
+        }
+    }
+
+    private MutableJsArray parseSelectedArray(JsPathTrie selection) {
+        MutableJsArray jsArray = new MutableJsArray();
+        int c = skipWhitespace();
+        if (c == ']') {
+            myPos++;
+            return jsArray;
+        }
+
+        // selected indices are visited in order, elements after the last one are not padded
+        int indexCount = selection.indexCount();
+        int next = 0;
+        for (int index = 0; ; index++) {
+            if (next < indexCount && selection.indexAt(next) == index) {
+                jsArray.add(parseSelectedValue(c, selection.indexChildAt(next++)));
+            } else {
+                skipValue(c);
+                if (next < indexCount) jsArray.add(JsonValue.NULL);
+            }
+
+            c = skipWhitespace();
+            if (c == ',') {
+                myPos++;
+                c = skipWhitespace();
+            } else if (c == ']') {
+                myPos++;
+                return jsArray;
+            } else {
+                throw unexpected(c, "',' or ']'");
+            }
+        }
+    }
+
+    /**
+     * Skip value without creating it, the value is checked to be valid json the same as by parseValue()
+     *
+     * @param c first unit of value
+     */
+    protected void skipValue(int c) {
+        switch (c) {
+            case '{':
+                myPos++;
+                skipObject();
+                break;
+            case '[':
+                myPos++;
+                skipArray();
+                break;
+            case '"':
+                myPos++;
+                skipString();
+                break;
+            case 't':
+                parseLiteral("true");
+                break;
+            case 'f':
+                parseLiteral("false");
+                break;
+            case 'n':
+                parseLiteral("null");
+                break;
+            default:
+                if (c == '-' || isDigit(c)) skipNumber();
+                else throw unexpected(c, "value");
+        }
+    }
+
+    private void skipObject() {
+        int c = skipWhitespace();
+        if (c == '}') {
+            myPos++;
+            return;
+        }
+
+        for (; ; ) {
+            if (c != '"') throw unexpected(c, "object key");
+            myPos++;
+            skipString();
+            c = skipWhitespace();
+            if (c != ':') throw unexpected(c, "':'");
+            myPos++;
+            skipValue(skipWhitespace());
+
+            c = skipWhitespace();
+            if (c == ',') {
+                myPos++;
+                c = skipWhitespace();
+            } else if (c == '}') {
+                myPos++;
+                return;
+            } else {
+                throw unexpected(c, "',' or '}'");
+            }
+        }
+    }
+
+    private void skipArray() {
+        int c = skipWhitespace();
+        if (c == ']') {
+            myPos++;
+            return;
+        }
+
+        for (; ; ) {
+            skipValue(c);
+
+            c = skipWhitespace();
+            if (c == ',') {
+                myPos++;
+                c = skipWhitespace();
+            } else if (c == ']') {
+                myPos++;
+                return;
+            } else {
+                throw unexpected(c, "',' or ']'");
+            }
+        }
+    }
+
+    private void skipNumber() {
+        int c = peek();
+        if (c == '-') {
+            myPos++;
+            c = peek();
+        }
+
+        if (c == '0') {
+            myPos++;
+            c = peek();
+        } else if (c >= '1' && c <= '9') {
+            c = skipDigits();
+        } else {
+            throw unexpected(c, "digit");
+        }
+
+        if (c == '.') {
+            myPos++;
+            c = skipDigits();
+        }
+
+        if (c == 'e' || c == 'E') {
+            myPos++;
+            c = peek();
+            if (c == '+' || c == '-') {
+                myPos++;
+            }
+            skipDigits();
+        }
+    }
+
+    /**
+     * Skip object or array without creating values, called with myPos at the opening brace or bracket.
+     * Only strings and the nesting of braces and brackets are checked, other errors are found when the
+     * value is parsed.
+     */
+    protected void skipContainer() {
+        int depth = 0;
+        for (; ; ) {
+            if (myPos >= myLimit && !fill()) throw unexpected(-1, depth == 0 ? "'{' or '['" : "'" + myClosers[depth - 1] + "'");
+            int c = unitAt(myPos++);
+            if (c == '"') {
+                skipString();
+            } else if (c == '{' || c == '[') {
+                if (myClosers == null) myClosers = new char[16];
+                else if (depth == myClosers.length) myClosers = Arrays.copyOf(myClosers, depth * 2);
+                myClosers[depth++] = c == '{' ? '}' : ']';
+            } else if (c == '}' || c == ']') {
+                if (depth == 0 || myClosers[--depth] != c) throw unexpected(c, depth == 0 ? "'{' or '['" : "'" + myClosers[depth] + "'");
+                if (depth == 0) return;
+            }
+        }
+    }
+
+    /**
+     * Skip string contents, called with myPos after the opening quote
+     */
+    protected void skipString() {
+        for (; ; ) {
+            if (myPos >= myLimit && !fill()) throw unexpected(-1, "'\"'");
+            int c = unitAt(myPos);
+            if (c == '"') {
+                myPos++;
+                return;
+            }
+
+            if (c == '\\') {
+                myPos++;
+                parseEscape();
+            } else if (c < ' ') {
+                throw unexpected(c, "string character");
+            } else {
+                myPos++;
+            }
+        }
+    }
+
+    protected void parseLiteral(String literal) {
+        int iMax = literal.length();
+        for (int i = 0; i < iMax; i++) {
+            int c = peek();
+            if (c != literal.charAt(i)) throw unexpected(c, "'" + literal + "'");
+            myPos++;
+        }
+    }
+
+    protected JsNumber parseNumber() {
+        myMark = myPos;
+        boolean negative = false;
+        boolean integral = true;
+        long value = 0;
+        int digits = 0;
+
+        int c = peek();
+        if (c == '-') {
+            negative = true;
+            myPos++;
+            c = peek();
+        }
+
+        if (c == '0') {
+            myPos++;
+            c = peek();
+        } else if (c >= '1' && c <= '9') {
+            do {
+                // 18 digits always fit in a long
+                if (digits < 18) value = value * 10 + c - '0';
+                digits++;
+                myPos++;
+                c = peek();
+            } while (isDigit(c));
+        } else {
+            throw unexpected(c, "digit");
+        }
+
+        if (c == '.') {
+            integral = false;
+            myPos++;
+            c = skipDigits();
+        }
+
+        if (c == 'e' || c == 'E') {
+            integral = false;
+            myPos++;
+            c = peek();
+            if (c == '+' || c == '-') {
+                myPos++;
+            }
+            skipDigits();
+        }
+
+        int start = myMark;
+        myMark = -1;
+
+        if (integral && digits <= 18) {
+            if (negative) value = -value;
+            return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE ? new JsIntNumber((int) value) : new JsLongNumber(value);
+        }
+        return parseDecimalNumber(start, myPos);
+    }
+
+    private int skipDigits() {
+        int c = peek();
+        if (!isDigit(c)) throw unexpected(c, "digit");
+        do {
+            myPos++;
+            c = peek();
+        } while (isDigit(c));
+        return c;
+    }
+
+    /**
+     * Parse escape sequence, called with myPos after the backslash
+     *
+     * @return escaped char
+     */
+    protected final char parseEscape() {
+        int c = peek();
+        switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                myPos++;
+                return (char) c;
+            case 'b':
+                myPos++;
+                return '\b';
+            case 'f':
+                myPos++;
+                return '\f';
+            case 'n':
+                myPos++;
+                return '\n';
+            case 'r':
+                myPos++;
+                return '\r';
+            case 't':
+                myPos++;
+                return '\t';
+            case 'u': {
+                myPos++;
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int h = peek();
+                    int digit = Character.digit(h, 16);
+                    if (h > 127 || digit < 0) throw unexpected(h, "hex digit");
+                    value = (value << 4) | digit;
+                    myPos++;
+                }
+                return (char) value;
+            }
+            default:
+                throw unexpected(c, "escape character");
+        }
+    }
+
+    protected static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    protected JsonParsingException unexpected(int c, String expected) {
+        String found = c == -1 ? "end of input" : c < ' ' ? String.format("\\u%04x", c) : "'" + (char) c + "'";
+        return error("Unexpected " + found + ", expected " + expected);
+    }
+
+    protected JsonParsingException error(String message) {
+        long offset = myOffset + myPos;
+        return new JsonParsingException(message + " at offset " + offset, new Location(offset));
+    }
+
+    static class Location implements JsonLocation {
+        private final long myStreamOffset;
+
+        Location(final long streamOffset) {
+            myStreamOffset = streamOffset;
+        }
+
+        @Override
+        public long getLineNumber() {
+            return -1;
+        }
+
+        @Override
+        public long getColumnNumber() {
+            return -1;
+        }
+
+        @Override
+        public long getStreamOffset() {
+            return myStreamOffset;
+        }
+    }
+}
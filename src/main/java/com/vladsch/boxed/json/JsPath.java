@@ -0,0 +1,112 @@
+package com.vladsch.boxed.json;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Compiled eval path, immutable and safe to share between threads
+ * <p>
+ * Each step is an object key or an array index. Evaluating a compiled path does not parse the path or
+ * box indexes, see BoxedJson.compilePath().
+ */
+public final class JsPath {
+    /**
+     * Index of empty [] step, one past the last element, only valid for evalSet()
+     */
+    public static final int EMPTY_INDEX = -1;
+
+    private final @NotNull String myPath;
+    private final @Nullable String[] myKeys;    // null for index steps
+    private final int[] myIndexes;
+    private final boolean myHasEmptyIndex;
+
+    /**
+     * @param path  path text
+     * @param parts parts returned by BoxedJson.parseEvalPath()
+     */
+    JsPath(final @NotNull String path, final @NotNull Object[] parts) {
+        int iMax = parts.length;
+        myPath = path;
+        myKeys = new String[iMax];
+        myIndexes = new int[iMax];
+
+        boolean hasEmptyIndex = false;
+        for (int i = 0; i < iMax; i++) {
+            Object part = parts[i];
+            if (part instanceof String) {
+                myKeys[i] = (String) part;
+            } else {
+                myIndexes[i] = (Integer) part;
+                if (myIndexes[i] == EMPTY_INDEX) hasEmptyIndex = true;
+            }
+        }
+        myHasEmptyIndex = hasEmptyIndex;
+    }
+
+    /**
+     * @param path path in eval() syntax
+     * @return compiled path
+     * @throws IllegalArgumentException if path is not valid
+     */
+    public static @NotNull JsPath of(final @NotNull String path) {
+        return BoxedJson.compilePath(path);
+    }
+
+    /**
+     * @return number of steps
+     */
+    public int size() {
+        return myKeys.length;
+    }
+
+    public boolean isKey(int step) {
+        return myKeys[step] != null;
+    }
+
+    /**
+     * @param step step
+     * @return key of step, null if step is an array index
+     */
+    public @Nullable String getKey(int step) {
+        return myKeys[step];
+    }
+
+    /**
+     * @param step step
+     * @return index of array step, EMPTY_INDEX for [], 0 if step is an object key
+     */
+    public int getIndex(int step) {
+        return myIndexes[step];
+    }
+
+    /**
+     * @return true if path has an empty [] index step, which can only be used with evalSet()
+     */
+    public boolean hasEmptyIndex() {
+        return myHasEmptyIndex;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (!(o instanceof JsPath)) return false;
+
+        JsPath other = (JsPath) o;
+        return Arrays.equals(myKeys, other.myKeys) && Arrays.equals(myIndexes, other.myIndexes);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(myKeys) + Arrays.hashCode(myIndexes);
+    }
+
+    /**
+     * @return path text
+     */
+    @Override
+    public String toString() {
+        return myPath;
+    }
+}
@@ -0,0 +1,109 @@
+package com.vladsch.boxed.json;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of compiled paths keyed by path text, safe for use by any number of threads
+ * <p>
+ * Paths are kept in two generations of half the cache size. Paths are added to the current generation,
+ * when it is full it becomes the previous generation and the old previous generation is dropped. A path
+ * found in the previous generation is added to the current one, so recently used paths are kept while
+ * paths not used for a generation are evicted.
+ * <p>
+ * Lookups take no locks, only replacing a full generation synchronizes.
+ */
+public final class JsPathCache {
+    public static final int DEFAULT_SIZE = 1024;
+
+    private final int myGenerationSize;
+    private volatile ConcurrentHashMap<String, JsPath> myCurrent;
+    private volatile ConcurrentHashMap<String, JsPath> myPrevious;
+    private final LongAdder myHits;
+    private final LongAdder myMisses;
+
+    public JsPathCache() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * @param size maximum number of cached paths
+     */
+    public JsPathCache(int size) {
+        if (size <= 0) throw new IllegalArgumentException("Path cache size must be positive");
+        myGenerationSize = Math.max(1, size / 2);
+        myCurrent = new ConcurrentHashMap<>();
+        myPrevious = new ConcurrentHashMap<>();
+        myHits = new LongAdder();
+        myMisses = new LongAdder();
+    }
+
+    /**
+     * @param path path in eval() syntax
+     * @return cached compiled path
+     * @throws IllegalArgumentException if path is not valid, invalid paths are not cached
+     */
+    @NotNull
+    public JsPath get(@NotNull String path) {
+        ConcurrentHashMap<String, JsPath> current = myCurrent;
+        JsPath jsPath = current.get(path);
+        if (jsPath != null) {
+            myHits.increment();
+            return jsPath;
+        }
+
+        jsPath = myPrevious.get(path);
+        if (jsPath != null) {
+            myHits.increment();
+        } else {
+            myMisses.increment();
+            jsPath = BoxedJson.compilePath(path);
+        }
+
+        if (current.size() >= myGenerationSize) {
+            synchronized (this) {
+                if (myCurrent == current) {
+                    myPrevious = current;
+                    myCurrent = new ConcurrentHashMap<>();
+                }
+                current = myCurrent;
+            }
+        }
+        current.put(path, jsPath);
+        return jsPath;
+    }
+
+    /**
+     * @return maximum number of cached paths
+     */
+    public int getMaxSize() {
+        return myGenerationSize * 2;
+    }
+
+    /**
+     * @return number of cached paths, a path may be counted in both generations
+     */
+    public int size() {
+        return myCurrent.size() + myPrevious.size();
+    }
+
+    public long getHitCount() {
+        return myHits.sum();
+    }
+
+    public long getMissCount() {
+        return myMisses.sum();
+    }
+
+    /**
+     * Discard cached paths and reset hit and miss counts
+     */
+    public synchronized void clear() {
+        myCurrent = new ConcurrentHashMap<>();
+        myPrevious = new ConcurrentHashMap<>();
+        myHits.reset();
+        myMisses.reset();
+    }
+}
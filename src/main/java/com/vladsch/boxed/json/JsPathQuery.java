@@ -0,0 +1,388 @@
+package com.vladsch.boxed.json;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.json.JsonArray;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+
+import static java.lang.Character.isDigit;
+
+/**
+ * Compiled query, an eval path which can also have wildcard, recursive descent and filter steps,
+ * immutable and safe to share between threads
+ * <p>
+ * In addition to the .key and [n] steps of eval() paths a query can have:
+ * <ul>
+ * <li>.* or [*]: every member value of an object or element of an array</li>
+ * <li>..key: the key's value in the current value and in every value nested in it, ..* every nested value</li>
+ * <li>[?(@.path op literal)]: every member value or element whose value at the relative path compares to
+ * the literal with ==, !=, &lt;, &lt;=, &gt; or &gt;=. Literals are numbers, quoted strings, true, false
+ * and null. [?(@.path)] selects every member value or element which has a value at path.</li>
+ * </ul>
+ * Matching values are returned in document order by BoxedJson.evalIterator() and evalStream(), which
+ * walk the json tree as results are requested.
+ */
+public final class JsPathQuery {
+    static final int KEY = 0;
+    static final int INDEX = 1;
+    static final int WILDCARD = 2;
+    static final int DESCENT = 3;
+    static final int DESCENT_WILDCARD = 4;
+    static final int FILTER = 5;
+
+    private final @NotNull String myQuery;
+    private final int[] myTypes;
+    private final String[] myKeys;
+    private final int[] myIndexes;
+    private final Filter[] myFilters;
+
+    private JsPathQuery(final @NotNull String query, final ArrayList<Object> steps, final int[] types) {
+        int iMax = types.length;
+        myQuery = query;
+        myTypes = types;
+        myKeys = new String[iMax];
+        myIndexes = new int[iMax];
+        myFilters = new Filter[iMax];
+
+        for (int i = 0; i < iMax; i++) {
+            Object step = steps.get(i);
+            if (step instanceof String) myKeys[i] = (String) step;
+            else if (step instanceof Integer) myIndexes[i] = (Integer) step;
+            else if (step instanceof Filter) myFilters[i] = (Filter) step;
+        }
+    }
+
+    /**
+     * @return number of steps
+     */
+    public int size() {
+        return myTypes.length;
+    }
+
+    int getType(int step) {
+        return myTypes[step];
+    }
+
+    String getKey(int step) {
+        return myKeys[step];
+    }
+
+    int getIndex(int step) {
+        return myIndexes[step];
+    }
+
+    Filter getFilter(int step) {
+        return myFilters[step];
+    }
+
+    /**
+     * @return query text
+     */
+    @Override
+    public String toString() {
+        return myQuery;
+    }
+
+    /**
+     * @param query query in eval() path syntax with wildcard, recursive descent and filter steps
+     * @return compiled query
+     * @throws IllegalArgumentException if query is not valid
+     */
+    public static @NotNull JsPathQuery of(final @NotNull String query) {
+        String text = query.trim();
+        int iMax = text.length();
+        if (iMax == 0) throw invalidQuery();
+
+        ArrayList<Object> steps = new ArrayList<>();
+        int[] types = new int[iMax];
+        int pos = 0;
+        while (pos < iMax) {
+            char c = text.charAt(pos);
+            int type;
+            if (c == '.') {
+                if (pos + 1 < iMax && text.charAt(pos + 1) == '.') {
+                    pos += 2;
+                    if (isWildcard(text, pos)) {
+                        type = DESCENT_WILDCARD;
+                        steps.add(null);
+                        pos++;
+                    } else {
+                        int end = keyEnd(text, pos);
+                        type = DESCENT;
+                        steps.add(text.substring(pos, end));
+                        pos = end;
+                    }
+                } else {
+                    // not valid to start with .
+                    if (pos == 0) throw invalidQuery();
+                    pos++;
+                    if (isWildcard(text, pos)) {
+                        type = WILDCARD;
+                        steps.add(null);
+                        pos++;
+                    } else {
+                        int end = keyEnd(text, pos);
+                        type = KEY;
+                        steps.add(text.substring(pos, end));
+                        pos = end;
+                    }
+                }
+            } else if (c == '[') {
+                if (text.startsWith("[*]", pos)) {
+                    type = WILDCARD;
+                    steps.add(null);
+                    pos += 3;
+                } else if (text.startsWith("[?(", pos)) {
+                    Filter filter = new Filter();
+                    pos = filter.parse(text, pos + 3);
+                    type = FILTER;
+                    steps.add(filter);
+                } else {
+                    int start = ++pos;
+                    int index = 0;
+                    while (pos < iMax && isDigit(text.charAt(pos))) {
+                        if (index > (Integer.MAX_VALUE - 9) / 10) throw invalidQuery();
+                        index = index * 10 + text.charAt(pos++) - '0';
+                    }
+                    if (pos == start || pos >= iMax || text.charAt(pos) != ']') throw invalidQuery();
+                    pos++;
+                    type = INDEX;
+                    steps.add(index);
+                }
+            } else if (pos == 0) {
+                if (isWildcard(text, pos)) {
+                    type = WILDCARD;
+                    steps.add(null);
+                    pos++;
+                } else {
+                    int end = keyEnd(text, pos);
+                    type = KEY;
+                    steps.add(text.substring(pos, end));
+                    pos = end;
+                }
+            } else {
+                // after ] should have . or [
+                throw invalidQuery();
+            }
+            types[steps.size() - 1] = type;
+        }
+
+        int[] stepTypes = new int[steps.size()];
+        System.arraycopy(types, 0, stepTypes, 0, stepTypes.length);
+        return new JsPathQuery(text, steps, stepTypes);
+    }
+
+    private static boolean isWildcard(String text, int pos) {
+        if (pos >= text.length() || text.charAt(pos) != '*') return false;
+        return pos + 1 == text.length() || text.charAt(pos + 1) == '.' || text.charAt(pos + 1) == '[';
+    }
+
+    /**
+     * @return end of non-empty key starting at pos
+     */
+    private static int keyEnd(String text, int pos) {
+        int iMax = text.length();
+        int end = pos;
+        while (end < iMax) {
+            char c = text.charAt(end);
+            if (c == '.' || c == '[') break;
+            if (c == ']') throw invalidQuery();
+            end++;
+        }
+        if (end == pos) throw invalidQuery();
+        return end;
+    }
+
+    static IllegalArgumentException invalidQuery() {
+        return new IllegalArgumentException("Invalid path argument");
+    }
+
+    /**
+     * @param value value
+     * @param key   key
+     * @return value of key in value, null if value is not an object or has no such key
+     */
+    static @Nullable JsonValue member(@NotNull JsonValue value, @NotNull String key) {
+        if (value.getValueType() != JsonValue.ValueType.OBJECT) return null;
+
+        JsonObject jsonObject = (JsonObject) value;
+        JsonValue member = jsonObject.get(key);
+        if (member == null) {
+            return jsonObject.containsKey(key) ? JsonValue.NULL : null;
+        }
+        return valid(member);
+    }
+
+    /**
+     * @param value value
+     * @param index index
+     * @return element at index of value, null if value is not an array or index is out of bounds
+     */
+    static @Nullable JsonValue element(@NotNull JsonValue value, int index) {
+        if (value.getValueType() != JsonValue.ValueType.ARRAY) return null;
+
+        JsonArray jsonArray = (JsonArray) value;
+        if (index >= jsonArray.size()) return null;
+        JsonValue element = jsonArray.get(index);
+        return element == null ? JsonValue.NULL : valid(element);
+    }
+
+    /**
+     * @return value with lazy value materialized, null for invalid boxed value
+     */
+    static @Nullable JsonValue valid(@NotNull JsonValue value) {
+        if (value instanceof JsLazyValue) return ((JsLazyValue) value).materialize();
+        if (value instanceof BoxedJsValue && ((BoxedJsValue) value).isInvalidJsonValue()) return null;
+        return value;
+    }
+
+    static final class Filter {
+        static final int EXISTS = 0;
+        static final int EQ = 1;
+        static final int NE = 2;
+        static final int LT = 3;
+        static final int LE = 4;
+        static final int GT = 5;
+        static final int GE = 6;
+
+        private JsPath myPath;
+        private int myOp;
+        private JsonValue myLiteral;
+
+        /**
+         * @param text query text
+         * @param pos  position after [?(
+         * @return position after )]
+         */
+        int parse(String text, int pos) {
+            pos = skipSpaces(text, pos);
+            if (pos >= text.length() || text.charAt(pos) != '@') throw invalidQuery();
+
+            int start = ++pos;
+            while (pos < text.length() && " =!<>)".indexOf(text.charAt(pos)) == -1) pos++;
+            String path = text.substring(start, pos);
+            if (path.isEmpty()) {
+                myPath = new JsPath("", new Object[0]);
+            } else {
+                if (path.startsWith(".")) path = path.substring(1);
+                Object[] parts = path.startsWith(".") ? null : BoxedJson.parseEvalPath(path, false);
+                if (parts == null) throw invalidQuery();
+                myPath = new JsPath(path, parts);
+            }
+
+            pos = skipSpaces(text, pos);
+            if (text.startsWith(")", pos)) {
+                myOp = EXISTS;
+            } else {
+                if (text.startsWith("==", pos)) myOp = EQ;
+                else if (text.startsWith("!=", pos)) myOp = NE;
+                else if (text.startsWith("<=", pos)) myOp = LE;
+                else if (text.startsWith(">=", pos)) myOp = GE;
+                else if (text.startsWith("<", pos)) myOp = LT;
+                else if (text.startsWith(">", pos)) myOp = GT;
+                else throw invalidQuery();
+                pos = skipSpaces(text, pos + (myOp == LT || myOp == GT ? 1 : 2));
+                pos = skipSpaces(text, parseLiteral(text, pos));
+            }
+
+            if (!text.startsWith(")]", pos)) throw invalidQuery();
+            return pos + 2;
+        }
+
+        private int parseLiteral(String text, int pos) {
+            if (pos >= text.length()) throw invalidQuery();
+
+            char quote = text.charAt(pos);
+            if (quote == '\'' || quote == '"') {
+                StringBuilder sb = new StringBuilder();
+                pos++;
+                while (pos < text.length() && text.charAt(pos) != quote) {
+                    char c = text.charAt(pos++);
+                    if (c == '\\' && pos < text.length()) c = text.charAt(pos++);
+                    sb.append(c);
+                }
+                if (pos >= text.length()) throw invalidQuery();
+                myLiteral = JsString.of(sb.toString());
+                return pos + 1;
+            }
+
+            int start = pos;
+            while (pos < text.length() && " )".indexOf(text.charAt(pos)) == -1) pos++;
+            String token = text.substring(start, pos);
+            switch (token) {
+                case "true":
+                    myLiteral = JsonValue.TRUE;
+                    break;
+                case "false":
+                    myLiteral = JsonValue.FALSE;
+                    break;
+                case "null":
+                    myLiteral = JsonValue.NULL;
+                    break;
+                default:
+                    try {
+                        myLiteral = JsNumber.of(new BigDecimal(token));
+                    } catch (NumberFormatException e) {
+                        throw invalidQuery();
+                    }
+            }
+            return pos;
+        }
+
+        private static int skipSpaces(String text, int pos) {
+            while (pos < text.length() && text.charAt(pos) == ' ') pos++;
+            return pos;
+        }
+
+        /**
+         * @param value member value or element
+         * @return true if value is selected by filter, values without a value at the filter's path are
+         *         never selected
+         */
+        boolean test(@NotNull JsonValue value) {
+            int iMax = myPath.size();
+            for (int i = 0; i < iMax && value != null; i++) {
+                String key = myPath.getKey(i);
+                value = key != null ? member(value, key) : element(value, myPath.getIndex(i));
+            }
+            if (value == null) return false;
+            if (myOp == EXISTS) return true;
+
+            JsonValue.ValueType valueType = value.getValueType();
+            JsonValue.ValueType literalType = myLiteral.getValueType();
+            int cmp;
+            if (valueType == JsonValue.ValueType.NUMBER && literalType == JsonValue.ValueType.NUMBER) {
+                cmp = ((JsonNumber) value).bigDecimalValue().compareTo(((JsonNumber) myLiteral).bigDecimalValue());
+            } else if (valueType == JsonValue.ValueType.STRING && literalType == JsonValue.ValueType.STRING) {
+                cmp = ((JsonString) value).getString().compareTo(((JsonString) myLiteral).getString());
+            } else if (valueType == literalType && valueType != JsonValue.ValueType.OBJECT && valueType != JsonValue.ValueType.ARRAY) {
+                // same literal
+                cmp = 0;
+            } else {
+                return myOp == NE;
+            }
+
+            switch (myOp) {
+                case EQ:
+                    return cmp == 0;
+                case NE:
+                    return cmp != 0;
+                case LT:
+                    return cmp < 0;
+                case LE:
+                    return cmp <= 0;
+                case GT:
+                    return cmp > 0;
+                case GE:
+                default:
+                    return cmp >= 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.vladsch.boxed.json;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonValue;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static com.vladsch.boxed.json.JsPathQuery.*;
+
+/**
+ * Iterator of values matching a query, walking the json tree only as far as needed for the next value
+ * <p>
+ * Key and index steps are followed directly. Steps with several results push a cursor over the children
+ * of their value on a stack, so the walk is depth first in document order without recursion. Only the
+ * returned values are boxed. The tree must not be modified during iteration.
+ */
+final class JsPathQueryIterator implements Iterator<BoxedJsValue> {
+    private final JsPathQuery myQuery;
+    private final ArrayDeque<Cursor> myStack;
+    private JsonValue myRoot;
+    private JsonValue myNext;
+
+    JsPathQueryIterator(final @NotNull JsPathQuery query, final @Nullable JsonValue root) {
+        myQuery = query;
+        myStack = new ArrayDeque<>();
+        myRoot = root;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (myNext == null) myNext = advance();
+        return myNext != null;
+    }
+
+    @Override
+    public BoxedJsValue next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        JsonValue next = myNext;
+        myNext = null;
+        return BoxedJson.boxedOf(next);
+    }
+
+    private JsonValue advance() {
+        if (myRoot != null) {
+            JsonValue root = myRoot;
+            myRoot = null;
+            JsonValue result = apply(root, 0);
+            if (result != null) return result;
+        }
+
+        while (!myStack.isEmpty()) {
+            Cursor cursor = myStack.peek();
+            if (!cursor.advance()) {
+                myStack.pop();
+                continue;
+            }
+
+            JsonValue result = apply(cursor.myValue, cursor.myValueStep);
+            if (result != null) return result;
+        }
+        return null;
+    }
+
+    /**
+     * Apply steps to value, following key and index steps and pushing a cursor for a step with several
+     * results
+     *
+     * @param value value
+     * @param step  first step to apply
+     * @return value after last step, null if no more steps could be applied directly
+     */
+    private JsonValue apply(JsonValue value, int step) {
+        int iMax = myQuery.size();
+        while (value != null) {
+            if (step == iMax) return value;
+
+            switch (myQuery.getType(step)) {
+                case KEY:
+                    value = member(value, myQuery.getKey(step));
+                    break;
+
+                case INDEX:
+                    value = element(value, myQuery.getIndex(step));
+                    break;
+
+                case WILDCARD:
+                    myStack.push(new Cursor(value, step + 1, -1, null));
+                    return null;
+
+                case FILTER:
+                    myStack.push(new Cursor(value, step + 1, -1, myQuery.getFilter(step)));
+                    return null;
+
+                case DESCENT:
+                    // nested values continue with the same step after the key's value in this one
+                    myStack.push(new Cursor(value, step, -1, null));
+                    value = member(value, myQuery.getKey(step));
+                    break;
+
+                case DESCENT_WILDCARD:
+                default:
+                    // each nested value is a result of this step and is searched by it
+                    myStack.push(new Cursor(value, step + 1, step, null));
+                    return null;
+            }
+            step++;
+        }
+        return null;
+    }
+
+    /**
+     * Cursor over member values of an object or elements of an array, giving each child with its first
+     * step and then, if there is one, with its second step
+     */
+    private static final class Cursor {
+        final int myStep;
+        final int mySecondStep;
+        final @Nullable JsPathQuery.Filter myFilter;
+
+        Iterator<String> myKeys;
+        MutableJsMap<String> myMap;
+        Iterator<Map.Entry<String, JsonValue>> myEntries;
+        JsonArray myArray;
+        int myIndex;
+        JsonValue mySecond;
+
+        JsonValue myValue;
+        int myValueStep;
+
+        Cursor(JsonValue value, int step, int secondStep, @Nullable JsPathQuery.Filter filter) {
+            myStep = step;
+            mySecondStep = secondStep;
+            myFilter = filter;
+
+            if (value instanceof MutableJsObject) {
+                myMap = ((MutableJsObject) value).myMap;
+                myKeys = myMap.rawKeySet().iterator();
+            } else if (value.getValueType() == JsonValue.ValueType.OBJECT) {
+                myEntries = ((JsonObject) value).entrySet().iterator();
+            } else if (value.getValueType() == JsonValue.ValueType.ARRAY) {
+                myArray = (JsonArray) value;
+            }
+        }
+
+        boolean advance() {
+            if (mySecond != null) {
+                myValue = mySecond;
+                myValueStep = mySecondStep;
+                mySecond = null;
+                return true;
+            }
+
+            JsonValue child;
+            do {
+                child = nextChild();
+                if (child == null) return false;
+            } while (myFilter != null && !myFilter.test(child));
+
+            myValue = child;
+            myValueStep = myStep;
+            if (mySecondStep >= 0) mySecond = child;
+            return true;
+        }
+
+        private JsonValue nextChild() {
+            while (true) {
+                JsonValue child;
+                if (myKeys != null) {
+                    if (!myKeys.hasNext()) return null;
+                    child = myMap.get(myKeys.next());
+                } else if (myEntries != null) {
+                    if (!myEntries.hasNext()) return null;
+                    child = myEntries.next().getValue();
+                } else if (myArray != null) {
+                    if (myIndex >= myArray.size()) return null;
+                    child = myArray.get(myIndex++);
+                } else {
+                    return null;
+                }
+
+                if (child == null) return JsonValue.NULL;
+                child = valid(child);
+                if (child != null) return child;
+            }
+        }
+    }
+}
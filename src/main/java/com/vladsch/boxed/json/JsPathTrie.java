@@ -0,0 +1,194 @@
+package com.vladsch.boxed.json;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Prefix tree of eval paths, used to select values of interest during parsing
+ * <p>
+ * Each node has children for object keys and array indices of the paths which pass through it.
+ * A leaf node is the end of a path, its value is selected as a whole.
+ * <p>
+ * A trie of compiled paths also records the index of each path ending at a node, for evaluating
+ * all paths in one traversal.
+ */
+final class JsPathTrie {
+    private final HashMap<String, JsPathTrie> myKeys = new HashMap<>();
+    private int[] myIndices;            // sorted indices of index children
+    private JsPathTrie[] myIndexChildren;
+    private int myIndexCount;
+    private boolean myLeaf;
+    private int[] myPaths;
+
+    /**
+     * @param paths eval paths in BoxedJson.parseEvalPath() syntax, empty indices are not allowed
+     * @return path trie
+     * @throws IllegalArgumentException if any path is invalid
+     */
+    static JsPathTrie of(String... paths) {
+        JsPathTrie trie = new JsPathTrie();
+        for (String path : paths) {
+            Object[] parts = BoxedJson.parseEvalPath(path, false);
+            if (parts == null) throw new IllegalArgumentException("Invalid path argument");
+            trie.add(parts);
+        }
+        return trie;
+    }
+
+    /**
+     * @param paths compiled paths, empty indices are not allowed
+     * @return path trie with the index of each path at the node where it ends
+     * @throws IllegalArgumentException if any path has an empty index
+     */
+    static JsPathTrie of(JsPath... paths) {
+        JsPathTrie trie = new JsPathTrie();
+        int iMax = paths.length;
+        for (int i = 0; i < iMax; i++) {
+            JsPath path = paths[i];
+            if (path.hasEmptyIndex()) throw new IllegalArgumentException("Invalid path argument");
+
+            JsPathTrie node = trie;
+            int jMax = path.size();
+            for (int j = 0; j < jMax; j++) {
+                String key = path.getKey(j);
+                node = key != null ? node.keyChild(key) : node.indexChild(path.getIndex(j));
+            }
+            node.myLeaf = true;
+            node.addPath(i);
+        }
+        return trie;
+    }
+
+    private void addPath(int path) {
+        if (myPaths == null) {
+            myPaths = new int[] { path };
+        } else {
+            int[] paths = new int[myPaths.length + 1];
+            System.arraycopy(myPaths, 0, paths, 0, myPaths.length);
+            paths[myPaths.length] = path;
+            myPaths = paths;
+        }
+    }
+
+    void add(Object[] parts) {
+        JsPathTrie node = this;
+        for (Object part : parts) {
+            node = part instanceof String ? node.keyChild((String) part) : node.indexChild((Integer) part);
+        }
+        node.myLeaf = true;
+    }
+
+    private JsPathTrie keyChild(String key) {
+        return myKeys.computeIfAbsent(key, k -> new JsPathTrie());
+    }
+
+    private JsPathTrie indexChild(int index) {
+        int pos = indexPosition(index);
+        if (pos >= 0) return myIndexChildren[pos];
+
+        // index children are kept sparse, so storage depends on the number of paths and not on index values
+        pos = -pos - 1;
+        if (myIndices == null) {
+            myIndices = new int[4];
+            myIndexChildren = new JsPathTrie[4];
+        } else if (myIndexCount == myIndices.length) {
+            myIndices = Arrays.copyOf(myIndices, myIndexCount * 2);
+            myIndexChildren = Arrays.copyOf(myIndexChildren, myIndexCount * 2);
+        }
+
+        System.arraycopy(myIndices, pos, myIndices, pos + 1, myIndexCount - pos);
+        System.arraycopy(myIndexChildren, pos, myIndexChildren, pos + 1, myIndexCount - pos);
+        JsPathTrie child = new JsPathTrie();
+        myIndices[pos] = index;
+        myIndexChildren[pos] = child;
+        myIndexCount++;
+        return child;
+    }
+
+    /**
+     * @return position of index child, or -(insertion position) - 1 if there is no child for index
+     */
+    private int indexPosition(int index) {
+        return myIndices == null ? -1 : Arrays.binarySearch(myIndices, 0, myIndexCount, index);
+    }
+
+    boolean isLeaf() {
+        return myLeaf;
+    }
+
+    /**
+     * @return indices of compiled paths ending at this node, null if none
+     */
+    @Nullable
+    int[] getPaths() {
+        return myPaths;
+    }
+
+    boolean hasKeys() {
+        return !myKeys.isEmpty();
+    }
+
+    Set<Map.Entry<String, JsPathTrie>> keyEntries() {
+        return myKeys.entrySet();
+    }
+
+    /**
+     * Set all paths ending at this node or below it to value
+     *
+     * @param results results indexed by path
+     * @param value   value
+     */
+    void setAll(BoxedJsValue[] results, BoxedJsValue value) {
+        if (myPaths != null) {
+            for (int path : myPaths) {
+                results[path] = value;
+            }
+        }
+
+        for (JsPathTrie child : myKeys.values()) {
+            child.setAll(results, value);
+        }
+
+        for (int i = 0; i < myIndexCount; i++) {
+            myIndexChildren[i].setAll(results, value);
+        }
+    }
+
+    @Nullable
+    JsPathTrie get(String key) {
+        return myKeys.get(key);
+    }
+
+    @Nullable
+    JsPathTrie get(int index) {
+        int pos = indexPosition(index);
+        return pos >= 0 ? myIndexChildren[pos] : null;
+    }
+
+    /**
+     * @return number of index children
+     */
+    int indexCount() {
+        return myIndexCount;
+    }
+
+    /**
+     * @param pos position of index child, 0 to indexCount() - 1, in increasing index order
+     * @return index of child
+     */
+    int indexAt(int pos) {
+        return myIndices[pos];
+    }
+
+    /**
+     * @param pos position of index child, 0 to indexCount() - 1, in increasing index order
+     * @return child
+     */
+    JsPathTrie indexChildAt(int pos) {
+        return myIndexChildren[pos];
+    }
+}
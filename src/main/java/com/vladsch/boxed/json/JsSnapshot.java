@@ -0,0 +1,240 @@
+package com.vladsch.boxed.json;
+
+import javax.json.JsonException;
+import javax.json.JsonValue;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static com.vladsch.boxed.json.JsBinaryWriter.*;
+
+/**
+ * Snapshot written by JsSnapshotWriter, read in place
+ * <p>
+ * Opening a snapshot only checks its header. Values are decoded when they are accessed, object keys
+ * are found by binary search of the key directory, array elements by their offset table.
+ * Offsets are checked when values are accessed, a corrupt snapshot results in JsonException.
+ */
+final class JsSnapshot {
+    static final byte[] MAGIC = { 'B', 'J', 'S', '1' };
+    static final int HEADER_SIZE = 8;
+
+    private final ByteBuffer myBuffer;
+    private final int myLimit;
+
+    /**
+     * @param buffer buffer with snapshot starting at its position, not modified
+     */
+    JsSnapshot(final ByteBuffer buffer) {
+        myBuffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        myLimit = myBuffer.limit();
+
+        if (myLimit < HEADER_SIZE) throw invalid();
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (myBuffer.get(i) != MAGIC[i]) throw new JsonException("Not a JSON snapshot");
+        }
+    }
+
+    BoxedJsValue root() {
+        return value(myBuffer.getInt(MAGIC.length));
+    }
+
+    BoxedJsValue value(int offset) {
+        checkRange(offset, 1);
+        int tag = myBuffer.get(offset);
+        switch (tag) {
+            case TAG_NULL:
+                return BoxedJson.boxedOf(JsonValue.NULL);
+            case TAG_FALSE:
+                return BoxedJson.boxedOf(false);
+            case TAG_TRUE:
+                return BoxedJson.boxedOf(true);
+            case TAG_ARRAY:
+                checkRange(offset + 5, count(offset) * 4L);
+                return new BoxedJsSnapshotArray(this, offset);
+            case TAG_OBJECT:
+                checkRange(offset + 5, count(offset) * 12L);
+                return new BoxedJsSnapshotObject(this, offset);
+            case TAG_STRING:
+                return new BoxedJsStringLiteral(new JsString(string(offset)));
+            default:
+                return new BoxedJsNumberLiteral(number(offset, tag));
+        }
+    }
+
+    /**
+     * @param offset offset of value
+     * @return copy of value as mutable json
+     */
+    JsonValue materialize(int offset) {
+        checkRange(offset, 1);
+        int tag = myBuffer.get(offset);
+        switch (tag) {
+            case TAG_NULL:
+                return JsonValue.NULL;
+            case TAG_FALSE:
+                return JsonValue.FALSE;
+            case TAG_TRUE:
+                return JsonValue.TRUE;
+            case TAG_ARRAY: {
+                int count = count(offset);
+                checkRange(offset + 5, count * 4L);
+                MutableJsArray jsArray = new MutableJsArray(Math.min(count, JsBinaryReader.MAX_INITIAL_CAPACITY));
+                for (int i = 0; i < count; i++) {
+                    jsArray.myList.add(materialize(elementOffset(offset, i)));
+                }
+                return jsArray;
+            }
+            case TAG_OBJECT: {
+                int count = count(offset);
+                checkRange(offset + 5, count * 12L);
+                MutableJsObject jsObject = new MutableJsObject(Math.min(count, JsBinaryReader.MAX_INITIAL_CAPACITY));
+                for (int i = 0; i < count; i++) {
+                    int entry = memberEntry(offset, i);
+                    jsObject.myMap.put(string(keyOffset(offset, entry)), materialize(valueOffset(offset, entry)));
+                }
+                return jsObject;
+            }
+            case TAG_STRING:
+                return new JsString(string(offset));
+            default:
+                return number(offset, tag);
+        }
+    }
+
+    /**
+     * @param offset offset of array or object
+     * @return number of elements or members
+     */
+    int count(int offset) {
+        checkRange(offset + 1, 4);
+        return myBuffer.getInt(offset + 1);
+    }
+
+    int elementOffset(int array, int index) {
+        return myBuffer.getInt(array + 5 + index * 4);
+    }
+
+    int keyOffset(int object, int entry) {
+        return myBuffer.getInt(object + 5 + entry * 8);
+    }
+
+    int valueOffset(int object, int entry) {
+        return myBuffer.getInt(object + 9 + entry * 8);
+    }
+
+    /**
+     * @param object offset of object
+     * @param index  index of member in document order
+     * @return key directory entry of member
+     */
+    int memberEntry(int object, int index) {
+        int count = myBuffer.getInt(object + 1);
+        int entry = myBuffer.getInt(object + 5 + count * 8 + index * 4);
+        if (entry < 0 || entry >= count) throw invalid();
+        return entry;
+    }
+
+    /**
+     * @param object offset of object
+     * @param key    key
+     * @return key directory entry of key or -1 if object has no such key
+     */
+    int findEntry(int object, String key) {
+        int low = 0;
+        int high = myBuffer.getInt(object + 1) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareKey(keyOffset(object, mid), key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    String string(int offset) {
+        int length = stringLength(offset);
+        return JsString.decode(myBuffer, offset + 5, offset + 5 + length, false);
+    }
+
+    private int stringLength(int offset) {
+        checkRange(offset, 5);
+        if (myBuffer.get(offset) != TAG_STRING) throw invalid();
+        int length = myBuffer.getInt(offset + 1);
+        checkRange(offset + 5, length);
+        return length;
+    }
+
+    /**
+     * Compare snapshot key to key in String order, ASCII keys are compared without decoding
+     */
+    private int compareKey(int keyOffset, String key) {
+        int length = stringLength(keyOffset);
+        int pos = keyOffset + 5;
+        int keyLength = key.length();
+        int iMax = Math.min(length, keyLength);
+        for (int i = 0; i < iMax; i++) {
+            int b = myBuffer.get(pos + i);
+            char c = key.charAt(i);
+            if (b < 0 || c >= 0x80) {
+                return JsString.decode(myBuffer, pos, pos + length, false).compareTo(key);
+            }
+            if (b != c) return b - c;
+        }
+
+        if (length == keyLength) return 0;
+        if (length > keyLength) {
+            // remaining bytes decode to at least one char
+            return 1;
+        }
+        return -1;
+    }
+
+    private JsNumber number(int offset, int tag) {
+        switch (tag) {
+            case TAG_INT:
+                checkRange(offset + 1, 4);
+                return new JsIntNumber(myBuffer.getInt(offset + 1));
+            case TAG_LONG:
+                checkRange(offset + 1, 8);
+                return new JsLongNumber(myBuffer.getLong(offset + 1));
+            case TAG_DOUBLE:
+                checkRange(offset + 1, 8);
+                return new JsDoubleNumber(Double.longBitsToDouble(myBuffer.getLong(offset + 1)));
+            case TAG_DECIMAL:
+                checkRange(offset + 1, 12);
+                return new JsBigDecimalNumber(BigDecimal.valueOf(myBuffer.getLong(offset + 5), myBuffer.getInt(offset + 1)));
+            case TAG_BIG_DECIMAL: {
+                checkRange(offset + 1, 8);
+                int scale = myBuffer.getInt(offset + 1);
+                int length = myBuffer.getInt(offset + 5);
+                checkRange(offset + 9, length);
+                byte[] bytes = new byte[length];
+                for (int i = 0; i < length; i++) {
+                    bytes[i] = myBuffer.get(offset + 9 + i);
+                }
+                return new JsBigDecimalNumber(new BigDecimal(new BigInteger(bytes), scale));
+            }
+            default:
+                throw new JsonException("Invalid JSON snapshot tag " + tag);
+        }
+    }
+
+    private void checkRange(int offset, long length) {
+        if (offset < HEADER_SIZE || length < 0 || offset + length > myLimit) throw invalid();
+    }
+
+    private static JsonException invalid() {
+        return new JsonException("Invalid JSON snapshot");
+    }
+
+    static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("JSON snapshot values are read-only, use BoxedJson.copyOf() to get a mutable copy");
+    }
+}
@@ -0,0 +1,259 @@
+package com.vladsch.boxed.json;
+
+import javax.json.JsonArray;
+import javax.json.JsonException;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.vladsch.boxed.json.JsBinaryWriter.*;
+
+/**
+ * Writer of the random access snapshot format read in place by JsSnapshot
+ * <p>
+ * The snapshot is a header: magic "BJS1" and the int offset of the root value, followed by values.
+ * Values are referenced by their absolute offset, each value is a tag byte, using JsBinaryWriter tags,
+ * followed by its contents. Ints are 4 byte and longs 8 byte little endian:
+ * <ul>
+ * <li>NULL, FALSE, TRUE: no contents, written once and shared</li>
+ * <li>INT: int, LONG: long, DOUBLE: long IEEE 754 bits</li>
+ * <li>DECIMAL: int scale, long unscaled value</li>
+ * <li>BIG_DECIMAL: int scale, int length, big endian two's complement unscaled value</li>
+ * <li>STRING: int length, UTF-8 bytes</li>
+ * <li>ARRAY: int count, element offsets</li>
+ * <li>OBJECT: int count, key directory of key offset and value offset pairs sorted by key,
+ * directory index of each member in document order</li>
+ * </ul>
+ * Children are written before their container and object keys are written once per snapshot.
+ */
+final class JsSnapshotWriter {
+    static final int INITIAL_SIZE = 8192;
+
+    private byte[] myBytes;
+    private int myPos;
+    private final HashMap<String, Integer> myKeys;
+    private int myNull;
+    private int myFalse;
+    private int myTrue;
+
+    JsSnapshotWriter() {
+        myBytes = new byte[INITIAL_SIZE];
+        myPos = JsSnapshot.HEADER_SIZE;
+        myKeys = new HashMap<>();
+        myNull = -1;
+        myFalse = -1;
+        myTrue = -1;
+    }
+
+    void write(final JsonValue jsonValue) {
+        int root = writeValue(jsonValue);
+        System.arraycopy(JsSnapshot.MAGIC, 0, myBytes, 0, JsSnapshot.MAGIC.length);
+        putInt(JsSnapshot.MAGIC.length, root);
+    }
+
+    void writeTo(final OutputStream outputStream) {
+        try {
+            outputStream.write(myBytes, 0, myPos);
+            outputStream.flush();
+        } catch (IOException e) {
+            throw new JsonException("I/O error while writing JSON snapshot", e);
+        }
+    }
+
+    ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(Arrays.copyOf(myBytes, myPos));
+    }
+
+    private int writeValue(JsonValue jsonValue) {
+        if (jsonValue instanceof JsLazyValue) {
+            jsonValue = ((JsLazyValue) jsonValue).materialize();
+        }
+
+        if (jsonValue == null) {
+            return writeNull();
+        }
+
+        switch (jsonValue.getValueType()) {
+            case OBJECT:
+                if (jsonValue instanceof MutableJsObject) {
+                    MutableJsMap<String> jsMap = ((MutableJsObject) jsonValue).myMap;
+                    return writeObject(jsMap.size(), jsMap.rawEntrySet());
+                } else {
+                    JsonObject jsonObject = (JsonObject) jsonValue;
+                    return writeObject(jsonObject.size(), jsonObject.entrySet());
+                }
+
+            case ARRAY:
+                if (jsonValue instanceof MutableJsArray) {
+                    return writeArray(((MutableJsArray) jsonValue).myList.rawList());
+                } else {
+                    return writeArray((JsonArray) jsonValue);
+                }
+
+            case STRING:
+                return writeString(((JsonString) jsonValue).getString());
+
+            case NUMBER:
+                return writeNumber((JsonNumber) jsonValue);
+
+            case TRUE:
+                if (myTrue < 0) myTrue = writeTag(TAG_TRUE, 0);
+                return myTrue;
+
+            case FALSE:
+                if (myFalse < 0) myFalse = writeTag(TAG_FALSE, 0);
+                return myFalse;
+
+            case NULL:
+            default:
+                return writeNull();
+        }
+    }
+
+    private int writeNull() {
+        if (myNull < 0) myNull = writeTag(TAG_NULL, 0);
+        return myNull;
+    }
+
+    private int writeObject(int size, Iterable<? extends Map.Entry<String, JsonValue>> entries) {
+        String[] keys = new String[size];
+        int[] keyOffsets = new int[size];
+        int[] valueOffsets = new int[size];
+        int count = 0;
+        for (Map.Entry<String, JsonValue> entry : entries) {
+            String key = entry.getKey();
+            Integer keyOffset = myKeys.get(key);
+            if (keyOffset == null) {
+                keyOffset = writeString(key);
+                myKeys.put(key, keyOffset);
+            }
+            keys[count] = key;
+            keyOffsets[count] = keyOffset;
+            valueOffsets[count] = writeValue(entry.getValue());
+            count++;
+        }
+
+        Integer[] sorted = new Integer[count];
+        for (int i = 0; i < count; i++) sorted[i] = i;
+        Arrays.sort(sorted, (i1, i2) -> keys[i1].compareTo(keys[i2]));
+
+        int offset = writeTag(TAG_OBJECT, 4 + count * 12);
+        putInt(count);
+        int[] ranks = new int[count];
+        for (int i = 0; i < count; i++) {
+            int member = sorted[i];
+            ranks[member] = i;
+            putInt(keyOffsets[member]);
+            putInt(valueOffsets[member]);
+        }
+        for (int i = 0; i < count; i++) {
+            putInt(ranks[i]);
+        }
+        return offset;
+    }
+
+    private int writeArray(List<JsonValue> values) {
+        int iMax = values.size();
+        int[] offsets = new int[iMax];
+        for (int i = 0; i < iMax; i++) {
+            offsets[i] = writeValue(values.get(i));
+        }
+
+        int offset = writeTag(TAG_ARRAY, 4 + iMax * 4);
+        putInt(iMax);
+        for (int i = 0; i < iMax; i++) {
+            putInt(offsets[i]);
+        }
+        return offset;
+    }
+
+    private int writeNumber(JsonNumber jsonNumber) {
+        int offset;
+        if (jsonNumber instanceof JsIntNumber) {
+            offset = writeTag(TAG_INT, 4);
+            putInt(jsonNumber.intValue());
+        } else if (jsonNumber instanceof JsLongNumber) {
+            offset = writeTag(TAG_LONG, 8);
+            putLong(jsonNumber.longValue());
+        } else if (jsonNumber instanceof JsDoubleNumber) {
+            offset = writeTag(TAG_DOUBLE, 8);
+            putLong(Double.doubleToRawLongBits(jsonNumber.doubleValue()));
+        } else {
+            BigDecimal value = jsonNumber.bigDecimalValue();
+            BigInteger unscaled = value.unscaledValue();
+            if (unscaled.bitLength() < 64) {
+                offset = writeTag(TAG_DECIMAL, 12);
+                putInt(value.scale());
+                putLong(unscaled.longValue());
+            } else {
+                byte[] bytes = unscaled.toByteArray();
+                offset = writeTag(TAG_BIG_DECIMAL, 8 + bytes.length);
+                putInt(value.scale());
+                putInt(bytes.length);
+                putBytes(bytes);
+            }
+        }
+        return offset;
+    }
+
+    private int writeString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int offset = writeTag(TAG_STRING, 4 + bytes.length);
+        putInt(bytes.length);
+        putBytes(bytes);
+        return offset;
+    }
+
+    /**
+     * @param tag    value tag
+     * @param length length of contents following the tag
+     * @return offset of the value
+     */
+    private int writeTag(int tag, int length) {
+        if (length > Integer.MAX_VALUE - 1 - myPos) {
+            throw new JsonException("JSON snapshot exceeds 2GB");
+        }
+
+        int needed = myPos + 1 + length;
+        if (needed > myBytes.length) {
+            myBytes = Arrays.copyOf(myBytes, (int) Math.min(Integer.MAX_VALUE - 8, Math.max((long) myBytes.length * 2, needed)));
+        }
+
+        int offset = myPos;
+        myBytes[myPos++] = (byte) tag;
+        return offset;
+    }
+
+    private void putInt(int value) {
+        putInt(myPos, value);
+        myPos += 4;
+    }
+
+    private void putInt(int pos, int value) {
+        myBytes[pos] = (byte) value;
+        myBytes[pos + 1] = (byte) (value >>> 8);
+        myBytes[pos + 2] = (byte) (value >>> 16);
+        myBytes[pos + 3] = (byte) (value >>> 24);
+    }
+
+    private void putLong(long value) {
+        putInt((int) value);
+        putInt((int) (value >>> 32));
+    }
+
+    private void putBytes(byte[] bytes) {
+        System.arraycopy(bytes, 0, myBytes, myPos, bytes.length);
+        myPos += bytes.length;
+    }
+}
@@ -0,0 +1,38 @@
+package com.vladsch.boxed.json;
+
+/**
+ * Source range of a parsed object or array, kept when the parser keeps source
+ * <p>
+ * An object or array whose source is not modified is written by copying its source text. Modifying
+ * an object or array marks its source and the sources of all its parsed ancestors as modified, so only
+ * the modified path is written from values.
+ */
+final class JsSource {
+    final JsParser myParser;
+    final int myStart;
+    final JsSource myParent;
+    int myEnd;
+    boolean myModified;
+
+    JsSource(final JsParser parser, final int start, final JsSource parent) {
+        myParser = parser;
+        myStart = start;
+        myParent = parent;
+    }
+
+    void markModified() {
+        for (JsSource source = this; source != null && !source.myModified; source = source.myParent) {
+            source.myModified = true;
+        }
+    }
+
+    /**
+     * @param writer writer
+     * @return true if source is not modified and was written
+     */
+    boolean writeTo(JsWriter writer) {
+        if (myModified || !writer.canWriteSource()) return false;
+        myParser.writeSource(writer, myStart, myEnd);
+        return true;
+    }
+}
@@ -1,24 +1,72 @@
 package com.vladsch.boxed.json;
 
 import javax.json.JsonString;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 public final class JsString implements JsonString {
-    private final String value;
+    private String value;
+
+    // UTF-8 source of a parsed value, decoded on first request
+    final ByteBuffer mySource;
+    final int myStart;
+    final int myEnd;
+    final boolean myEscaped;
+
+    // json text and its UTF-8 encoding, only for encoded() values
+    String myJson;
+    byte[] myJsonBytes;
 
     public static JsonString of(String value) {
         return new JsString(value);
     }
 
+    /**
+     * Create string value which keeps its json text and UTF-8 encoding, for values written many times
+     *
+     * @param value string value
+     * @return string value
+     */
+    public static JsString encoded(String value) {
+        JsString jsString = new JsString(value);
+        jsString.myJson = JsWriter.quote(value);
+        jsString.myJsonBytes = jsString.myJson.getBytes(StandardCharsets.UTF_8);
+        return jsString;
+    }
+
     public JsString(String value) {
         this.value = value;
+        mySource = null;
+        myStart = 0;
+        myEnd = 0;
+        myEscaped = false;
+    }
+
+    /**
+     * Create string value from UTF-8 json string contents, decoded when first requested
+     *
+     * @param source  buffer with string contents
+     * @param start   start of contents, after opening quote
+     * @param end     end of contents, before closing quote
+     * @param escaped true if contents contain escape sequences, which must be valid
+     */
+    JsString(ByteBuffer source, int start, int end, boolean escaped) {
+        mySource = source;
+        myStart = start;
+        myEnd = end;
+        myEscaped = escaped;
     }
 
     public String getString() {
-        return value;
+        String string = value;
+        if (string == null) {
+            value = string = decode(mySource, myStart, myEnd, myEscaped);
+        }
+        return string;
     }
 
     public CharSequence getChars() {
-        return value;
+        return getString();
     }
 
     public ValueType getValueType() {
@@ -26,56 +74,74 @@ public final class JsString implements JsonString {
     }
 
     public int hashCode() {
-        return value.hashCode();
+        return getString().hashCode();
     }
 
     public boolean equals(Object obj) {
-        return obj instanceof JsonString && value.equals(((JsonString) obj).getString());
+        return obj instanceof JsonString && getString().equals(((JsonString) obj).getString());
     }
 
     public String toString() {
-        StringBuilder sb = new StringBuilder();
-        sb.append('"');
-
-        for (int i = 0; i < value.length(); ++i) {
-            char c = value.charAt(i);
-            if (c >= ' ' && c != '"' && c != '\\') {
-                sb.append(c);
-            } else {
-                switch (c) {
-                    case '\b':
-                        sb.append('\\');
-                        sb.append('b');
-                        break;
-                    case '\t':
-                        sb.append('\\');
-                        sb.append('t');
-                        break;
-                    case '\n':
-                        sb.append('\\');
-                        sb.append('n');
-                        break;
-                    case '\f':
-                        sb.append('\\');
-                        sb.append('f');
-                        break;
-                    case '\r':
-                        sb.append('\\');
-                        sb.append('r');
-                        break;
-                    case '"':
-                    case '\\':
-                        sb.append('\\');
-                        sb.append(c);
-                        break;
-                    default:
-                        String hex = "000" + Integer.toHexString(c);
-                        sb.append("\\u").append(hex.substring(hex.length() - 4));
-                }
+        String json = myJson;
+        return json != null ? json : JsWriter.quote(getString());
+    }
+
+    /**
+     * Decode UTF-8 json string contents
+     *
+     * @param buffer  buffer with string contents
+     * @param start   start of contents
+     * @param end     end of contents
+     * @param escaped true if contents contain escape sequences, which must be valid
+     * @return decoded string
+     */
+    static String decode(ByteBuffer buffer, int start, int end, boolean escaped) {
+        if (!escaped) {
+            if (buffer.hasArray()) {
+                return new String(buffer.array(), buffer.arrayOffset() + start, end - start, StandardCharsets.UTF_8);
             }
+            return StandardCharsets.UTF_8.decode(JsUtf8Parser.slice(buffer, start, end)).toString();
         }
 
-        sb.append('"');
+        // escapes are ASCII and never part of a multi-byte sequence, decode runs between them
+        StringBuilder sb = new StringBuilder(end - start);
+        int i = start;
+        while (i < end) {
+            int run = i;
+            while (run < end && buffer.get(run) != '\\') run++;
+            if (run > i) sb.append(decode(buffer, i, run, false));
+            if (run >= end) break;
+
+            int c = buffer.get(run + 1);
+            i = run + 2;
+            switch (c) {
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'u':
+                    int value = 0;
+                    for (int h = 0; h < 4; h++) {
+                        value = (value << 4) | Character.digit(buffer.get(i++), 16);
+                    }
+                    sb.append((char) value);
+                    break;
+                default:
+                    sb.append((char) c);
+                    break;
+            }
+        }
         return sb.toString();
     }
 }
@@ -0,0 +1,293 @@
+package com.vladsch.boxed.json;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.json.JsonException;
+import javax.json.JsonValue;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Json parser for UTF-8 encoded input, tokenizes bytes without decoding them to chars
+ * <p>
+ * When parsing a ByteBuffer or byte array, string and decimal number values are not decoded during
+ * parsing but keep a reference to their bytes and are decoded when their value is first requested.
+ * The buffer contents must not be modified while parsed values are in use.
+ * <p>
+ * When parsing an input stream, or a transient buffer whose contents will be reused, all values are
+ * decoded during parsing.
+ * <p>
+ * A file channel is mapped in regions, the next region is mapped starting at the current token when
+ * parsing reaches the end of a region. Values reference the region in which they were parsed.
+ */
+public class JsUtf8Parser extends JsParser {
+    static final int BUFFER_SIZE = 8192;
+
+    private final InputStream myInputStream;
+    private final FileChannel myChannel;
+    private final long myChannelSize;
+    private final long myRegionSize;
+    private final boolean myTransient;  // buffer contents are not retained, values must not reference them
+    private boolean myAtStart;          // stream start was not read yet, a byte order mark is skipped
+    private ByteBuffer myBuffer;
+    private boolean myEscaped;
+    private char[] myDecimalChars;
+
+    /**
+     * Parse UTF-8 input stream, a leading byte order mark is skipped. Use JsParser.of(InputStream) for
+     * input which could be UTF-16 or UTF-32 encoded.
+     *
+     * @param inputStream UTF-8 json
+     */
+    public JsUtf8Parser(final @NotNull InputStream inputStream) {
+        myInputStream = inputStream;
+        myChannel = null;
+        myChannelSize = 0;
+        myRegionSize = 0;
+        myTransient = true;
+        myAtStart = true;
+        myBuffer = ByteBuffer.wrap(new byte[BUFFER_SIZE]);
+    }
+
+    public JsUtf8Parser(final @NotNull byte[] bytes, int offset, int length) {
+        this(ByteBuffer.wrap(bytes, offset, length));
+    }
+
+    /**
+     * Parse bytes from the buffer's position to its limit. The buffer's position is not changed.
+     *
+     * @param buffer buffer to parse
+     */
+    public JsUtf8Parser(final @NotNull ByteBuffer buffer) {
+        this(buffer, false);
+    }
+
+    /**
+     * Parse bytes from the buffer's position to its limit. The buffer's position is not changed.
+     *
+     * @param buffer      buffer to parse
+     * @param isTransient true if buffer contents will be reused after parsing, all values are decoded during parsing
+     */
+    public JsUtf8Parser(final @NotNull ByteBuffer buffer, boolean isTransient) {
+        myInputStream = null;
+        myChannel = null;
+        myChannelSize = 0;
+        myRegionSize = 0;
+        myTransient = isTransient;
+        reset(buffer);
+    }
+
+    /**
+     * Parse file mapped in regions, the channel must stay open until parsing is done
+     *
+     * @param channel    channel of file to parse
+     * @param regionSize maximum size of a mapped region, a single token must fit in a region
+     * @throws IOException if file cannot be mapped
+     */
+    JsUtf8Parser(final @NotNull FileChannel channel, long regionSize) throws IOException {
+        myInputStream = null;
+        myChannel = channel;
+        myChannelSize = channel.size();
+        myRegionSize = regionSize;
+        myTransient = false;
+        myBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(myChannelSize, regionSize));
+        myLimit = myBuffer.limit();
+    }
+
+    /**
+     * Reuse parser for another buffer, not valid for input stream parser
+     *
+     * @param buffer buffer to parse from its position to its limit
+     */
+    void reset(final @NotNull ByteBuffer buffer) {
+        myBuffer = buffer;
+        myPos = buffer.position();
+        myLimit = buffer.limit();
+        myMark = -1;
+        myOffset = 0;
+    }
+
+    @Override
+    protected boolean canReparse() {
+        return !myTransient && myChannel == null;
+    }
+
+    @Override
+    protected JsParser subParser(final int start, final int end) {
+        if (!canReparse()) return super.subParser(start, end);
+        return new JsUtf8Parser(slice(myBuffer, start, end));
+    }
+
+    @Override
+    protected void writeSource(final JsWriter writer, final int start, final int end) {
+        writer.writeUtf8(myBuffer, start, end);
+    }
+
+    @Override
+    protected int unitAt(final int pos) {
+        return myBuffer.get(pos) & 0xff;
+    }
+
+    @Override
+    protected boolean fill() {
+        if (myChannel != null) return mapNextRegion();
+        if (myInputStream == null) return false;
+
+        byte[] bytes = myBuffer.array();
+        int keep = myMark >= 0 ? myMark : myPos;
+        if (keep > 0) {
+            System.arraycopy(bytes, keep, bytes, 0, myLimit - keep);
+            myOffset += keep;
+            myPos -= keep;
+            myLimit -= keep;
+            if (myMark >= 0) myMark -= keep;
+        }
+
+        if (myLimit == bytes.length) {
+            byte[] newBytes = new byte[bytes.length * 2];
+            System.arraycopy(bytes, 0, newBytes, 0, myLimit);
+            myBuffer = ByteBuffer.wrap(newBytes);
+            bytes = newBytes;
+        }
+
+        try {
+            if (myAtStart) {
+                myAtStart = false;
+                if (fillStart(bytes)) return true;
+            }
+
+            int read;
+            do {
+                read = myInputStream.read(bytes, myLimit, bytes.length - myLimit);
+            } while (read == 0);
+
+            if (read < 0) return false;
+            myLimit += read;
+            return true;
+        } catch (IOException e) {
+            throw new JsonException("I/O error while parsing JSON", e);
+        }
+    }
+
+    /**
+     * Read at least the first three bytes of the stream, skipping a UTF-8 byte order mark
+     *
+     * @param bytes buffer, empty when called
+     * @return true if bytes after the byte order mark were read
+     * @throws IOException on read error
+     */
+    private boolean fillStart(final byte[] bytes) throws IOException {
+        while (myLimit < 3) {
+            int read = myInputStream.read(bytes, myLimit, bytes.length - myLimit);
+            if (read < 0) break;
+            myLimit += read;
+        }
+
+        if (myLimit >= 3 && (bytes[0] & 0xff) == 0xEF && (bytes[1] & 0xff) == 0xBB && (bytes[2] & 0xff) == 0xBF) {
+            myPos = 3;
+        }
+        return myPos < myLimit;
+    }
+
+    private boolean mapNextRegion() {
+        long end = myOffset + myLimit;
+        if (end >= myChannelSize) return false;
+
+        int keep = myMark >= 0 ? myMark : myPos;
+        long start = myOffset + keep;
+        long size = Math.min(myChannelSize - start, myRegionSize);
+        if (start + size <= end) throw new JsonException("JSON token at offset " + start + " is too large to map");
+
+        try {
+            myBuffer = myChannel.map(FileChannel.MapMode.READ_ONLY, start, size);
+        } catch (IOException e) {
+            throw new JsonException("I/O error while parsing JSON", e);
+        }
+
+        myOffset = start;
+        myPos -= keep;
+        myLimit = (int) size;
+        if (myMark >= 0) myMark -= keep;
+        return true;
+    }
+
+    /**
+     * Scan string, called with myPos after the opening quote, leaves myPos after the closing quote,
+     * myMark at the start of string contents and myEscaped true if the string has escape sequences.
+     *
+     * @return end of string contents
+     */
+    private int scanString() {
+        myMark = myPos;
+        boolean escaped = false;
+
+        for (; ; ) {
+            if (myPos >= myLimit && !fill()) throw unexpected(-1, "'\"'");
+            int c = myBuffer.get(myPos) & 0xff;
+            if (c == '"') break;
+
+            if (c == '\\') {
+                escaped = true;
+                myPos++;
+                parseEscape();
+            } else if (c < ' ') {
+                throw unexpected(c, "string character");
+            } else {
+                myPos++;
+            }
+        }
+
+        myEscaped = escaped;
+        return myPos++;
+    }
+
+    @Override
+    protected String parseString() {
+        int end = scanString();
+        int start = myMark;
+        myMark = -1;
+        return JsString.decode(myBuffer, start, end, myEscaped);
+    }
+
+    @Override
+    protected JsonValue parseStringValue() {
+        if (myTransient) return super.parseStringValue();
+
+        int end = scanString();
+        int start = myMark;
+        myMark = -1;
+        return new JsString(myBuffer, start, end, myEscaped);
+    }
+
+    @Override
+    protected BigDecimal parseDecimal(final int start, final int end) {
+        int length = end - start;
+        if (myDecimalChars == null || myDecimalChars.length < length) {
+            myDecimalChars = new char[Math.max(32, length)];
+        }
+        return JsBigDecimalNumber.decode(myBuffer, start, end, myDecimalChars);
+    }
+
+    @Override
+    protected JsNumber parseDecimalNumber(final int start, final int end) {
+        if (myTransient) return super.parseDecimalNumber(start, end);
+        return new JsBigDecimalNumber(myBuffer, start, end);
+    }
+
+    /**
+     * @param buffer buffer
+     * @param start  start of range
+     * @param end    end of range
+     * @return buffer sharing contents of given buffer with position and limit set to given range
+     */
+    static ByteBuffer slice(ByteBuffer buffer, int start, int end) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.clear();
+        slice.position(start);
+        slice.limit(end);
+        return slice;
+    }
+}
@@ -0,0 +1,953 @@
+package com.vladsch.boxed.json;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.json.JsonArray;
+import javax.json.JsonException;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Json serializer which writes values directly from MutableJsMap and MutableJsList contents
+ * <p>
+ * Values are written as they are, without converting nested GlassFish values to mutable ones or
+ * replacing java nulls, so writing never modifies the written tree. Lazy values are written from their
+ * parsed value. Output is the same as GlassFish JsonWriter output.
+ * <p>
+ * Output is accumulated in a char buffer. Without a sink the buffer grows and toString() returns
+ * the text, otherwise the buffer is written to the sink whenever it is full and by flush(). Output
+ * streams and byte buffers receive UTF-8 bytes.
+ * <p>
+ * Unmodified objects and arrays parsed with JsParser.setKeepSource(true) are written by copying their
+ * source text, see canWriteSource().
+ * <p>
+ * Pretty printing is enabled by setIndent() or setPrettyPrinting(), indentation is written directly
+ * to the buffer.
+ * <p>
+ * A writer is reused by reset(), which keeps its buffers. acquire() returns the writer of the current
+ * thread, JsWriterPool pools writers shared by threads.
+ */
+public class JsWriter {
+    static final int BUFFER_SIZE = 1024;
+    static final int BYTE_BUFFER_SIZE = 8192;
+    static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+    static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    static final Comparator<Map.Entry<String, JsonValue>> KEY_ORDER = Map.Entry.comparingByKey();
+
+    // char following '\\' in escape of ASCII chars, 'u' for \\u00XX, 0 if not escaped
+    static final char[] ESCAPES = new char[0x80];
+
+    static {
+        for (int c = 0; c < ' '; c++) {
+            ESCAPES[c] = 'u';
+        }
+        ESCAPES['\b'] = 'b';
+        ESCAPES['\t'] = 't';
+        ESCAPES['\n'] = 'n';
+        ESCAPES['\f'] = 'f';
+        ESCAPES['\r'] = 'r';
+        ESCAPES['"'] = '"';
+        ESCAPES['\\'] = '\\';
+    }
+
+    protected char[] myChars;
+    protected int myPos;
+
+    private Writer myWriter;
+    private OutputStream myOutputStream;
+    private ByteBuffer myByteBuffer;
+    private MessageDigest myDigest;
+    private byte[] myBytes;     // UTF-8 output waiting to be written to output stream or byte buffer
+    private int myBytePos;
+
+    private StringBuilder myNumberBuilder;
+
+    private boolean myCanonical;
+    private char[] myDigits;
+
+    private String myIndent;    // indent of one nesting level, null for compact output
+    private String myKeyValueSeparator = ":";
+    private int myShortArrayLength;
+    private int myDepth;
+
+    private static final ThreadLocal<JsWriter> THREAD_WRITER = new ThreadLocal<>();
+    private boolean myAcquired;
+
+    public JsWriter() {
+        myChars = new char[BUFFER_SIZE];
+    }
+
+    public JsWriter(final @NotNull Writer writer) {
+        this();
+        myWriter = writer;
+    }
+
+    public JsWriter(final @NotNull OutputStream outputStream) {
+        this();
+        myOutputStream = outputStream;
+    }
+
+    /**
+     * @param byteBuffer buffer to which UTF-8 bytes are put, starting at its position
+     */
+    public JsWriter(final @NotNull ByteBuffer byteBuffer) {
+        this();
+        myByteBuffer = byteBuffer;
+    }
+
+    /**
+     * Writer of the current thread with default options and no sink, to be released by release()
+     * <p>
+     * If the thread's writer is already acquired, a new writer is returned.
+     *
+     * @return writer
+     */
+    public static @NotNull JsWriter acquire() {
+        JsWriter writer = THREAD_WRITER.get();
+        if (writer == null) {
+            writer = new JsWriter();
+            THREAD_WRITER.set(writer);
+        } else if (writer.myAcquired) {
+            return new JsWriter();
+        }
+        writer.myAcquired = true;
+        return writer;
+    }
+
+    /**
+     * Reset output, sink and options of writer returned by acquire() so it can be acquired again
+     */
+    public void release() {
+        reset().resetOptions();
+        myAcquired = false;
+    }
+
+    /**
+     * Discard output and remove sink, keeping options and buffers so the writer can be reused.
+     * Buffers larger than MAX_RETAINED_BUFFER_SIZE are not kept.
+     * <p>
+     * Output buffered for a sink is discarded, flush() must be called before reset() to write it.
+     *
+     * @return this writer
+     */
+    public JsWriter reset() {
+        myPos = 0;
+        myBytePos = 0;
+        myDepth = 0;
+        myWriter = null;
+        myOutputStream = null;
+        myByteBuffer = null;
+        myDigest = null;
+        if (myChars.length > MAX_RETAINED_BUFFER_SIZE) myChars = new char[BUFFER_SIZE];
+        if (myBytes != null && myBytes.length > MAX_RETAINED_BUFFER_SIZE) myBytes = null;
+        return this;
+    }
+
+    public JsWriter reset(final @NotNull Writer writer) {
+        reset();
+        myWriter = writer;
+        return this;
+    }
+
+    public JsWriter reset(final @NotNull OutputStream outputStream) {
+        reset();
+        myOutputStream = outputStream;
+        return this;
+    }
+
+    public JsWriter reset(final @NotNull ByteBuffer byteBuffer) {
+        reset();
+        myByteBuffer = byteBuffer;
+        return this;
+    }
+
+    public JsWriter reset(final @NotNull MessageDigest digest) {
+        reset();
+        myDigest = digest;
+        return this;
+    }
+
+    /**
+     * Reset options to compact, non-canonical output
+     *
+     * @return this writer
+     */
+    public JsWriter resetOptions() {
+        myCanonical = false;
+        myIndent = null;
+        myKeyValueSeparator = ":";
+        myShortArrayLength = 0;
+        return this;
+    }
+
+    public String getIndent() {
+        return myIndent;
+    }
+
+    /**
+     * Set pretty printing indent, each object member and array element is written on a new line
+     * indented by indent repeated for its nesting level
+     *
+     * @param indent indent of one nesting level, null for compact output
+     * @return this writer
+     */
+    public JsWriter setIndent(final String indent) {
+        myIndent = indent;
+        return this;
+    }
+
+    public String getKeyValueSeparator() {
+        return myKeyValueSeparator;
+    }
+
+    /**
+     * @param keyValueSeparator text between object key and value, must be ':' with optional whitespace
+     * @return this writer
+     */
+    public JsWriter setKeyValueSeparator(final @NotNull String keyValueSeparator) {
+        myKeyValueSeparator = keyValueSeparator;
+        return this;
+    }
+
+    public int getShortArrayLength() {
+        return myShortArrayLength;
+    }
+
+    /**
+     * @param shortArrayLength arrays of up to this many elements which are not objects or arrays
+     *                         are written on one line when pretty printing
+     * @return this writer
+     */
+    public JsWriter setShortArrayLength(final int shortArrayLength) {
+        myShortArrayLength = shortArrayLength;
+        return this;
+    }
+
+    /**
+     * Set pretty printing with two space indent, ": " key value separator and short arrays of up
+     * to 8 elements on one line
+     *
+     * @return this writer
+     */
+    public JsWriter setPrettyPrinting() {
+        return setIndent("  ").setKeyValueSeparator(": ").setShortArrayLength(8);
+    }
+
+    /**
+     * @param digest digest updated with UTF-8 bytes, for hashing output without creating it
+     */
+    public JsWriter(final @NotNull MessageDigest digest) {
+        this();
+        myDigest = digest;
+    }
+
+    public boolean isCanonical() {
+        return myCanonical;
+    }
+
+    /**
+     * Set canonical output per RFC 8785 JSON Canonicalization Scheme: object keys sorted by their
+     * UTF-16 code units, numbers in shortest ECMAScript double form and no whitespace
+     * <p>
+     * Pretty printing options are reset, and must not be set for canonical output.
+     *
+     * @param canonical true for canonical output
+     * @return this writer
+     */
+    public JsWriter setCanonical(final boolean canonical) {
+        myCanonical = canonical;
+        if (canonical) {
+            myIndent = null;
+            myKeyValueSeparator = ":";
+        }
+        return this;
+    }
+
+    /**
+     * @param jsonValue value
+     * @return RFC 8785 canonical json text of value
+     */
+    public static String toCanonicalJson(final @NotNull JsonValue jsonValue) {
+        JsWriter writer = acquire();
+        try {
+            return writer.setCanonical(true).write(jsonValue).toString();
+        } finally {
+            writer.release();
+        }
+    }
+
+    /**
+     * Hash of canonical json text, computed while writing without creating the text
+     *
+     * @param jsonValue value
+     * @return SHA-256 of UTF-8 RFC 8785 canonical json text as lowercase hex
+     */
+    public static String contentHash(final @NotNull JsonValue jsonValue) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        JsWriter writer = acquire();
+        try {
+            writer.reset(digest).setCanonical(true).write(jsonValue).flush();
+        } finally {
+            writer.release();
+        }
+
+        byte[] hash = digest.digest();
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX_DIGITS[hash[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * @param jsonValue value
+     * @return json text of value
+     */
+    public static String toJson(final @NotNull JsonValue jsonValue) {
+        JsWriter writer = acquire();
+        try {
+            return writer.write(jsonValue).toString();
+        } finally {
+            writer.release();
+        }
+    }
+
+    /**
+     * Write json text of value with the thread's writer
+     *
+     * @param jsonValue value
+     * @param writer    writer, flushed but not closed
+     */
+    static void writeTo(final @NotNull JsonValue jsonValue, final @NotNull Writer writer) {
+        JsWriter jsWriter = acquire();
+        try {
+            jsWriter.reset(writer).write(jsonValue).flush();
+        } finally {
+            jsWriter.release();
+        }
+    }
+
+    static void writeTo(final @NotNull JsonValue jsonValue, final @NotNull OutputStream outputStream) {
+        JsWriter jsWriter = acquire();
+        try {
+            jsWriter.reset(outputStream).write(jsonValue).flush();
+        } finally {
+            jsWriter.release();
+        }
+    }
+
+    static void writeTo(final @NotNull JsonValue jsonValue, final @NotNull ByteBuffer byteBuffer) {
+        JsWriter jsWriter = acquire();
+        try {
+            jsWriter.reset(byteBuffer).write(jsonValue).flush();
+        } finally {
+            jsWriter.release();
+        }
+    }
+
+    /**
+     * @return text written so far
+     */
+    @Override
+    public String toString() {
+        return new String(myChars, 0, myPos);
+    }
+
+    public JsWriter write(final JsonValue jsonValue) {
+        writeValue(jsonValue);
+        return this;
+    }
+
+    /**
+     * Write buffered output to the sink, does nothing if there is no sink. Flushes writers and output
+     * streams but does not close them.
+     *
+     * @throws JsonException                   if the sink throws an IOException
+     * @throws java.nio.BufferOverflowException if the output does not fit in the byte buffer
+     */
+    public void flush() {
+        try {
+            if (myWriter != null) {
+                flushBuffer();
+                myWriter.flush();
+            } else if (isByteOutput()) {
+                encodeBuffer(true);
+                flushBytes();
+                if (myOutputStream != null) myOutputStream.flush();
+            }
+        } catch (IOException e) {
+            throw new JsonException("I/O error while writing JSON", e);
+        }
+    }
+
+    protected void writeValue(final JsonValue jsonValue) {
+        if (jsonValue == null) {
+            write("null");
+            return;
+        }
+
+        switch (jsonValue.getValueType()) {
+            case OBJECT:
+                if (jsonValue instanceof MutableJsObject) {
+                    MutableJsMap<String> jsMap = ((MutableJsObject) jsonValue).myMap;
+                    if (jsMap.mySource == null || !jsMap.mySource.writeTo(this)) {
+                        writeObject(jsMap.rawEntrySet());
+                    }
+                } else if (jsonValue instanceof JsLazyValue) {
+                    writeLazyValue((JsLazyValue) jsonValue);
+                } else {
+                    writeObject(((JsonObject) jsonValue).entrySet());
+                }
+                break;
+
+            case ARRAY:
+                if (jsonValue instanceof MutableJsArray) {
+                    MutableJsList jsList = ((MutableJsArray) jsonValue).myList;
+                    if (jsList.mySource == null || !jsList.mySource.writeTo(this)) {
+                        writeArray(jsList.rawList());
+                    }
+                } else if (jsonValue instanceof JsLazyValue) {
+                    writeLazyValue((JsLazyValue) jsonValue);
+                } else {
+                    writeArray((JsonArray) jsonValue);
+                }
+                break;
+
+            case STRING:
+                if (jsonValue instanceof JsString) {
+                    writeJsString((JsString) jsonValue);
+                } else {
+                    writeString(((JsonString) jsonValue).getString());
+                }
+                break;
+
+            case NUMBER:
+                writeNumber((JsonNumber) jsonValue);
+                break;
+
+            case TRUE:
+                write("true");
+                break;
+
+            case FALSE:
+                write("false");
+                break;
+
+            case NULL:
+                write("null");
+                break;
+        }
+    }
+
+    private void writeLazyValue(final JsLazyValue lazyValue) {
+        if (!lazyValue.writeSource(this)) {
+            writeValue(lazyValue.materialize());
+        }
+    }
+
+    /**
+     * @return true if unmodified values with kept source can be written by copying their source,
+     * false when pretty printing or writing canonical output
+     */
+    protected boolean canWriteSource() {
+        return myIndent == null && !myCanonical;
+    }
+
+    protected void writeObject(Iterable<? extends Map.Entry<String, JsonValue>> entries) {
+        if (myCanonical) {
+            ArrayList<Map.Entry<String, JsonValue>> sorted = new ArrayList<>();
+            for (Map.Entry<String, JsonValue> entry : entries) {
+                sorted.add(entry);
+            }
+            sorted.sort(KEY_ORDER);
+            entries = sorted;
+        }
+
+        write('{');
+        boolean first = true;
+        myDepth++;
+        for (Map.Entry<String, JsonValue> entry : entries) {
+            if (first) first = false;
+            else write(',');
+            writeNewLine();
+            writeString(entry.getKey());
+            write(myKeyValueSeparator);
+            writeValue(entry.getValue());
+        }
+        myDepth--;
+        if (!first) writeNewLine();
+        write('}');
+    }
+
+    protected void writeArray(final List<JsonValue> values) {
+        write('[');
+        int iMax = values.size();
+        boolean isShort = myIndent != null && iMax <= myShortArrayLength && isLiterals(values);
+        myDepth++;
+        for (int i = 0; i < iMax; i++) {
+            if (i > 0) write(',');
+            if (isShort) {
+                if (i > 0) write(' ');
+            } else {
+                writeNewLine();
+            }
+            writeValue(values.get(i));
+        }
+        myDepth--;
+        if (iMax > 0 && !isShort) writeNewLine();
+        write(']');
+    }
+
+    private static boolean isLiterals(final List<JsonValue> values) {
+        for (JsonValue value : values) {
+            if (value != null && (value.getValueType() == JsonValue.ValueType.OBJECT || value.getValueType() == JsonValue.ValueType.ARRAY)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeNewLine() {
+        String indent = myIndent;
+        if (indent != null) {
+            write('\n');
+            for (int i = myDepth; i-- > 0; ) {
+                write(indent);
+            }
+        }
+    }
+
+    protected void writeNumber(final JsonNumber jsonNumber) {
+        if (myCanonical) {
+            writeCanonicalNumber(jsonNumber.doubleValue());
+        } else if (jsonNumber instanceof JsIntNumber || jsonNumber instanceof JsLongNumber) {
+            writeLong(jsonNumber.longValue());
+        } else if (jsonNumber instanceof JsDoubleNumber) {
+            StringBuilder sb = myNumberBuilder;
+            if (sb == null) myNumberBuilder = sb = new StringBuilder(32);
+            sb.setLength(0);
+            JsDoubleNumber.append(sb, jsonNumber.doubleValue());
+            int length = sb.length();
+            if (myPos + length > myChars.length) flushBuffer();
+            sb.getChars(0, length, myChars, myPos);
+            myPos += length;
+        } else if (!(jsonNumber instanceof JsBigDecimalNumber) || !((JsBigDecimalNumber) jsonNumber).writeSource(this)) {
+            write(jsonNumber.toString());
+        }
+    }
+
+    /**
+     * Write number in ECMAScript Number.prototype.toString() form with shortest round trip digits
+     *
+     * @param value value
+     */
+    protected void writeCanonicalNumber(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new JsonException("Canonical json numbers must be finite doubles, got " + value);
+        }
+
+        if (value == 0) {
+            write('0');
+            return;
+        }
+
+        if (value < 0) {
+            write('-');
+            value = -value;
+        }
+
+        char[] digits = myDigits;
+        if (digits == null) myDigits = digits = new char[32];
+
+        // digits of value 0.d1d2..dk * 10^n, first digit not zero
+        int k = 0;
+        int n;
+
+        // Double.toString() digits are shortest if they are 15 or fewer, distinct decimals of up to 15
+        // digits are distinct doubles. Subnormal doubles have less precision and always use rounding.
+        StringBuilder sb = myNumberBuilder;
+        if (sb == null) myNumberBuilder = sb = new StringBuilder(32);
+        sb.setLength(0);
+        sb.append(value);
+
+        int length = sb.length();
+        int pointDigits = -1;
+        int exponent = 0;
+        int leadingZeros = 0;
+        for (int i = 0; i < length; i++) {
+            char c = sb.charAt(i);
+            if (c == '.') {
+                pointDigits = k + leadingZeros;
+            } else if (c == 'E') {
+                boolean negative = sb.charAt(i + 1) == '-';
+                for (int j = negative ? i + 2 : i + 1; j < length; j++) {
+                    exponent = exponent * 10 + sb.charAt(j) - '0';
+                }
+                if (negative) exponent = -exponent;
+                break;
+            } else if (k == 0 && c == '0') {
+                leadingZeros++;
+            } else {
+                digits[k++] = c;
+            }
+        }
+        n = pointDigits + exponent - leadingZeros;
+        while (digits[k - 1] == '0') k--;
+
+        if (k > 15 || value < Double.MIN_NORMAL) {
+            BigDecimal exact = new BigDecimal(value);
+            for (int precision = value < Double.MIN_NORMAL ? 1 : 15; precision <= 17; precision++) {
+                BigDecimal rounded = roundTrip(exact, value, precision);
+                if (rounded != null) {
+                    String unscaled = rounded.unscaledValue().toString();
+                    n = unscaled.length() - rounded.scale();
+                    k = unscaled.length();
+                    unscaled.getChars(0, k, digits, 0);
+                    while (digits[k - 1] == '0') k--;
+                    break;
+                }
+            }
+        }
+
+        if (k <= n && n <= 21) {
+            write(digits, 0, k);
+            for (int i = k; i < n; i++) write('0');
+        } else if (0 < n && n <= 21) {
+            write(digits, 0, n);
+            write('.');
+            write(digits, n, k);
+        } else if (-6 < n && n <= 0) {
+            write('0');
+            write('.');
+            for (int i = n; i < 0; i++) write('0');
+            write(digits, 0, k);
+        } else {
+            write(digits[0]);
+            if (k > 1) {
+                write('.');
+                write(digits, 1, k);
+            }
+            write('e');
+            write(n - 1 < 0 ? '-' : '+');
+            writeLong(Math.abs(n - 1));
+        }
+    }
+
+    /**
+     * @param exact     exact decimal value of double
+     * @param value     double
+     * @param precision number of digits
+     * @return decimal of precision digits closest to exact which converts to value, null if none
+     */
+    private static BigDecimal roundTrip(BigDecimal exact, double value, int precision) {
+        BigDecimal nearest = exact.round(new MathContext(precision, RoundingMode.HALF_EVEN));
+        if (nearest.doubleValue() == value) return nearest;
+
+        // at powers of 2 the gap to the next lower double is smaller, the other neighbour can convert to value
+        int comparison = nearest.compareTo(exact);
+        BigDecimal other = exact.round(new MathContext(precision, comparison < 0 ? RoundingMode.CEILING : RoundingMode.FLOOR));
+        return other.doubleValue() == value ? other : null;
+    }
+
+    protected void writeLong(long value) {
+        if (myPos + 20 > myChars.length) flushBuffer();
+
+        char[] chars = myChars;
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                write("-9223372036854775808");
+                return;
+            }
+            chars[myPos++] = '-';
+            value = -value;
+        }
+
+        // digits are generated from the end, into the buffer after their final position
+        int end = myPos + 19;
+        int pos = end;
+        do {
+            chars[--pos] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        int length = end - pos;
+        System.arraycopy(chars, pos, chars, myPos, length);
+        myPos += length;
+    }
+
+    protected void writeString(final String value) {
+        int i = firstEscape(value);
+        write('"');
+        if (i < 0) {
+            write(value);
+        } else {
+            int length = value.length();
+            int run = 0;
+            for (; i < length; i++) {
+                char c = value.charAt(i);
+                if (c >= 0x80 || ESCAPES[c] == 0) continue;
+
+                write(value, run, i);
+                run = i + 1;
+                char escape = ESCAPES[c];
+                write('\\');
+                write(escape);
+                if (escape == 'u') {
+                    write('0');
+                    write('0');
+                    write(HEX_DIGITS[c >> 4]);
+                    write(HEX_DIGITS[c & 0xf]);
+                }
+            }
+            write(value, run, length);
+        }
+        write('"');
+    }
+
+    protected void writeJsString(final JsString jsString) {
+        byte[] jsonBytes = jsString.myJsonBytes;
+        if (jsonBytes != null) {
+            if (isByteOutput()) {
+                writeBytes(jsonBytes);
+            } else {
+                write(jsString.myJson);
+            }
+        } else if (jsString.mySource != null && !jsString.myEscaped && isByteOutput()) {
+            // json string without escapes needs none, its source with quotes is its json text
+            writeUtf8(jsString.mySource, jsString.myStart - 1, jsString.myEnd + 1);
+        } else {
+            writeString(jsString.getString());
+        }
+    }
+
+    /**
+     * @param value string
+     * @return index of first char which needs escaping, -1 if none
+     */
+    static int firstEscape(final String value) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80 && ESCAPES[c] != 0) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @param value string
+     * @return json text of string value
+     */
+    static String quote(final String value) {
+        int i = firstEscape(value);
+        if (i < 0) return '"' + value + '"';
+
+        int length = value.length();
+        StringBuilder sb = new StringBuilder(length + 16);
+        sb.append('"').append(value, 0, i);
+        for (; i < length; i++) {
+            char c = value.charAt(i);
+            char escape = c < 0x80 ? ESCAPES[c] : 0;
+            if (escape == 0) {
+                sb.append(c);
+            } else {
+                sb.append('\\').append(escape);
+                if (escape == 'u') {
+                    sb.append('0').append('0').append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xf]);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    protected final void write(char c) {
+        if (myPos == myChars.length) flushBuffer();
+        myChars[myPos++] = c;
+    }
+
+    protected final void write(String s) {
+        write(s, 0, s.length());
+    }
+
+    protected final void write(String s, int start, int end) {
+        while (start < end) {
+            if (myPos == myChars.length) flushBuffer();
+            int count = Math.min(end - start, myChars.length - myPos);
+            s.getChars(start, start + count, myChars, myPos);
+            myPos += count;
+            start += count;
+        }
+    }
+
+    protected final void write(char[] chars, int start, int end) {
+        while (start < end) {
+            if (myPos == myChars.length) flushBuffer();
+            int count = Math.min(end - start, myChars.length - myPos);
+            System.arraycopy(chars, start, myChars, myPos, count);
+            myPos += count;
+            start += count;
+        }
+    }
+
+    /**
+     * @return true if output is UTF-8 bytes
+     */
+    protected final boolean isByteOutput() {
+        return myOutputStream != null || myByteBuffer != null || myDigest != null;
+    }
+
+    /**
+     * Write UTF-8 encoded json text, only valid for byte output
+     *
+     * @param bytes json text
+     */
+    protected final void writeBytes(byte[] bytes) {
+        writeUtf8(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    /**
+     * Write UTF-8 encoded json text, copied as is to byte output
+     *
+     * @param buffer buffer with text
+     * @param start  start of text
+     * @param end    end of text
+     */
+    protected final void writeUtf8(ByteBuffer buffer, int start, int end) {
+        if (!isByteOutput()) {
+            write(JsString.decode(buffer, start, end, false));
+            return;
+        }
+
+        encodeBuffer(true);
+        int length = end - start;
+        if (myBytePos + length > myBytes.length) {
+            flushBytes();
+            if (length > myBytes.length && (myOutputStream == null || buffer.hasArray())) {
+                try {
+                    if (myByteBuffer != null) myByteBuffer.put(JsUtf8Parser.slice(buffer, start, end));
+                    else if (myDigest != null) myDigest.update(JsUtf8Parser.slice(buffer, start, end));
+                    else myOutputStream.write(buffer.array(), buffer.arrayOffset() + start, length);
+                } catch (IOException e) {
+                    throw new JsonException("I/O error while writing JSON", e);
+                }
+                return;
+            }
+        }
+
+        while (start < end) {
+            int count = Math.min(end - start, myBytes.length - myBytePos);
+            JsUtf8Parser.slice(buffer, start, start + count).get(myBytes, myBytePos, count);
+            myBytePos += count;
+            start += count;
+            if (start < end) flushBytes();
+        }
+    }
+
+    /**
+     * Make room in the buffer, called when the buffer is full
+     */
+    protected void flushBuffer() {
+        if (myWriter != null) {
+            try {
+                myWriter.write(myChars, 0, myPos);
+                myPos = 0;
+            } catch (IOException e) {
+                throw new JsonException("I/O error while writing JSON", e);
+            }
+        } else if (isByteOutput()) {
+            encodeBuffer(false);
+        } else {
+            char[] chars = new char[myChars.length * 2];
+            System.arraycopy(myChars, 0, chars, 0, myPos);
+            myChars = chars;
+        }
+    }
+
+    /**
+     * Encode buffered chars to the byte buffer, writing the byte buffer to the sink if it has no room
+     *
+     * @param isEnd true if no more chars follow, otherwise a trailing high surrogate is kept in the
+     *              buffer to be encoded together with its low surrogate
+     */
+    private void encodeBuffer(boolean isEnd) {
+        if (myBytes == null) myBytes = new byte[Math.max(BYTE_BUFFER_SIZE, myChars.length * 3)];
+
+        int end = myPos;
+        if (!isEnd && end > 0 && Character.isHighSurrogate(myChars[end - 1])) end--;
+        if (myBytePos + end * 3 > myBytes.length) {
+            flushBytes();
+            // char buffer may have grown after byte buffer was allocated by an earlier use of the writer
+            if (end * 3 > myBytes.length) myBytes = new byte[end * 3];
+        }
+
+        myBytePos = encode(myChars, end, myBytes, myBytePos);
+        if (end < myPos) myChars[0] = myChars[end];
+        myPos -= end;
+    }
+
+    private void flushBytes() {
+        try {
+            if (myOutputStream != null) myOutputStream.write(myBytes, 0, myBytePos);
+            else if (myDigest != null) myDigest.update(myBytes, 0, myBytePos);
+            else myByteBuffer.put(myBytes, 0, myBytePos);
+            myBytePos = 0;
+        } catch (IOException e) {
+            throw new JsonException("I/O error while writing JSON", e);
+        }
+    }
+
+    /**
+     * Encode chars as UTF-8, unpaired surrogates are encoded as '?' like String.getBytes()
+     *
+     * @param chars  chars
+     * @param end    number of chars to encode
+     * @param bytes  byte array, with room for at least 3 times end bytes after offset
+     * @param offset offset in byte array
+     * @return offset after encoded bytes
+     */
+    static int encode(char[] chars, int end, byte[] bytes, int offset) {
+        int b = offset;
+        for (int i = 0; i < end; i++) {
+            char c = chars[i];
+            if (c < 0x80) {
+                bytes[b++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[b++] = (byte) (0xc0 | (c >> 6));
+                bytes[b++] = (byte) (0x80 | (c & 0x3f));
+            } else if (!Character.isSurrogate(c)) {
+                bytes[b++] = (byte) (0xe0 | (c >> 12));
+                bytes[b++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                bytes[b++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(chars[i + 1])) {
+                int codePoint = Character.toCodePoint(c, chars[++i]);
+                bytes[b++] = (byte) (0xf0 | (codePoint >> 18));
+                bytes[b++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                bytes[b++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                bytes[b++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else {
+                bytes[b++] = '?';
+            }
+        }
+        return b;
+    }
+}
@@ -0,0 +1,70 @@
+package com.vladsch.boxed.json;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.json.JsonValue;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Bounded pool of writers shared by threads, for reusing writers and their buffers where a writer
+ * per thread is not wanted
+ * <p>
+ * Acquiring takes an idle writer or creates a new one, releasing resets the writer and keeps it if
+ * the pool is not full. Neither blocks.
+ */
+public final class JsWriterPool {
+    public static final int DEFAULT_SIZE = 16;
+
+    private final ArrayBlockingQueue<JsWriter> myWriters;
+
+    public JsWriterPool() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * @param size maximum number of idle writers kept
+     */
+    public JsWriterPool(int size) {
+        if (size <= 0) throw new IllegalArgumentException("Writer pool size must be positive");
+        myWriters = new ArrayBlockingQueue<>(size);
+    }
+
+    /**
+     * @return number of idle writers
+     */
+    public int size() {
+        return myWriters.size();
+    }
+
+    /**
+     * @return writer with default options and no sink, to be returned by release()
+     */
+    @NotNull
+    public JsWriter acquire() {
+        JsWriter writer = myWriters.poll();
+        return writer == null ? new JsWriter() : writer;
+    }
+
+    /**
+     * Reset writer and return it to the pool, the writer must not be used after it is released
+     *
+     * @param writer writer returned by acquire()
+     */
+    public void release(@NotNull JsWriter writer) {
+        writer.reset().resetOptions();
+        myWriters.offer(writer);
+    }
+
+    /**
+     * @param jsonValue value
+     * @return json text of value
+     */
+    public String toJson(final @NotNull JsonValue jsonValue) {
+        JsWriter writer = acquire();
+        try {
+            return writer.write(jsonValue).toString();
+        } finally {
+            release(writer);
+        }
+    }
+}
@@ -1,20 +1,17 @@
 package com.vladsch.boxed.json;
 
-import javax.json.Json;
 import javax.json.JsonArray;
 import javax.json.JsonNumber;
 import javax.json.JsonObject;
 import javax.json.JsonString;
 import javax.json.JsonValue;
-import javax.json.JsonWriter;
-import java.io.StringWriter;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.AbstractList;
 import java.util.List;
 
 public class MutableJsArray extends AbstractList<JsonValue> implements JsonArray, MutableJsValue {
-    private final MutableJsList myList;
+    final MutableJsList myList;
 
     public MutableJsArray() {
         myList = new MutableJsList();
@@ -132,13 +129,7 @@ public class MutableJsArray extends AbstractList<JsonValue> implements JsonArray
     }
 
     public String toString() {
-        StringWriter sw = new StringWriter();
-        JsonWriter jw = Json.createWriter(sw);
-        // replace null with JsonValue.NULL
-        replaceAllToMutable();
-        jw.writeArray(this);
-        jw.close();
-        return sw.toString();
+        return JsWriter.toJson(this);
     }
 
     public JsonValue getRaw(final int index) {return myList.getRaw(index);}
@@ -152,6 +143,9 @@ public class MutableJsArray extends AbstractList<JsonValue> implements JsonArray
 
     public boolean add(final JsonValue o) {return myList.add(o == null ? JsonValue.NULL : o);}
 
+    @Override
+    public JsonValue remove(final int index) {return myList.remove(index);}
+
     public JsonValue set(final int index, int value) { return set(index, JsNumber.of(value)); }
 
     public JsonValue set(final int index, long value) { return set(index, JsNumber.of(value)); }
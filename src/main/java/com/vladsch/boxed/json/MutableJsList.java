@@ -9,6 +9,7 @@ import java.util.List;
 
 public class MutableJsList extends AbstractList<JsonValue> {
     final private ArrayList<JsonValue> myList;
+    JsSource mySource;  // source of parsed array, null if none
 
     public MutableJsList() {
         myList = new ArrayList<>();
@@ -33,18 +34,23 @@ public class MutableJsList extends AbstractList<JsonValue> {
         return myList.get(index);
     }
 
+    // use only for reading, values are not made mutable
+    List<JsonValue> rawList() {
+        return myList;
+    }
+
     @Override
     public JsonValue get(final int index) {
         JsonValue jsonValue = myList.get(index);
         switch (jsonValue.getValueType()) {
             case ARRAY:
                 if (jsonValue instanceof MutableJsArray) return jsonValue;
-                jsonValue = new MutableJsArray((JsonArray) jsonValue);
+                jsonValue = jsonValue instanceof JsLazyValue ? ((JsLazyValue) jsonValue).materialize() : new MutableJsArray((JsonArray) jsonValue);
                 break;
 
             case OBJECT:
                 if (jsonValue instanceof MutableJsObject) return jsonValue;
-                jsonValue = new MutableJsObject((JsonObject) jsonValue);
+                jsonValue = jsonValue instanceof JsLazyValue ? ((JsLazyValue) jsonValue).materialize() : new MutableJsObject((JsonObject) jsonValue);
                 break;
 
             case STRING:
@@ -60,16 +66,25 @@ public class MutableJsList extends AbstractList<JsonValue> {
 
     @Override
     public void add(final int index, final JsonValue element) {
+        if (mySource != null) mySource.markModified();
         myList.add(index, element);
     }
 
     @Override
     public JsonValue set(final int index, final JsonValue element) {
+        if (mySource != null) mySource.markModified();
         return MutableJson.of(myList.set(index, element));
     }
 
     @Override
     public JsonValue remove(final int index) {
+        if (mySource != null) mySource.markModified();
         return MutableJson.of(myList.remove(index));
     }
+
+    @Override
+    public void clear() {
+        if (mySource != null) mySource.markModified();
+        myList.clear();
+    }
 }
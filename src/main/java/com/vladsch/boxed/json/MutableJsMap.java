@@ -9,6 +9,7 @@ import java.util.*;
 
 public class MutableJsMap<K> extends AbstractMap<K, JsonValue> {
     final private LinkedHashMap<K, JsonValue> myMap;
+    JsSource mySource;  // source of parsed object, null if none
 
     public MutableJsMap() {
         myMap = new LinkedHashMap<>();
@@ -44,6 +45,16 @@ public class MutableJsMap<K> extends AbstractMap<K, JsonValue> {
         return myMap.get(key);
     }
 
+    // use only for reading, values are not made mutable
+    Set<Entry<K, JsonValue>> rawEntrySet() {
+        return myMap.entrySet();
+    }
+
+    // keys without creating entries, values should be read with get()
+    Set<K> rawKeySet() {
+        return myMap.keySet();
+    }
+
     @Override
     public JsonValue get(final Object key) {
         JsonValue jsonValue = myMap.get(key);
@@ -54,12 +65,12 @@ public class MutableJsMap<K> extends AbstractMap<K, JsonValue> {
         switch (jsonValue.getValueType()) {
             case ARRAY:
                 if (jsonValue instanceof MutableJsArray) return jsonValue;
-                jsonValue = new MutableJsArray((JsonArray) jsonValue);
+                jsonValue = jsonValue instanceof JsLazyValue ? ((JsLazyValue) jsonValue).materialize() : new MutableJsArray((JsonArray) jsonValue);
                 break;
 
             case OBJECT:
                 if (jsonValue instanceof MutableJsObject) return jsonValue;
-                jsonValue = new MutableJsObject((JsonObject) jsonValue);
+                jsonValue = jsonValue instanceof JsLazyValue ? ((JsLazyValue) jsonValue).materialize() : new MutableJsObject((JsonObject) jsonValue);
                 break;
 
             case STRING:
@@ -100,11 +111,19 @@ public class MutableJsMap<K> extends AbstractMap<K, JsonValue> {
 
     @Override
     public JsonValue put(final K key, final JsonValue value) {
+        if (mySource != null) mySource.markModified();
         return myMap.put(key, value);
     }
 
     @Override
     public JsonValue remove(final Object key) {
+        if (mySource != null) mySource.markModified();
         return myMap.remove(key);
     }
+
+    @Override
+    public void clear() {
+        if (mySource != null) mySource.markModified();
+        myMap.clear();
+    }
 }
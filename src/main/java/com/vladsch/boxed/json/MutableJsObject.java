@@ -2,14 +2,11 @@ package com.vladsch.boxed.json;
 
 import org.jetbrains.annotations.NotNull;
 
-import javax.json.Json;
 import javax.json.JsonArray;
 import javax.json.JsonNumber;
 import javax.json.JsonObject;
 import javax.json.JsonString;
 import javax.json.JsonValue;
-import javax.json.JsonWriter;
-import java.io.StringWriter;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.AbstractMap;
@@ -129,13 +126,7 @@ public class MutableJsObject extends AbstractMap<String, JsonValue> implements J
     }
 
     public String toString() {
-        StringWriter sw = new StringWriter();
-        JsonWriter jw = Json.createWriter(sw);
-        // replace null with JsonValue.NULL
-        replaceAllToMutable();
-        jw.write(this);
-        jw.close();
-        return sw.toString();
+        return JsWriter.toJson(this);
     }
 
     @Override
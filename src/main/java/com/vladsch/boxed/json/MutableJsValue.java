@@ -1,7 +1,40 @@
 package com.vladsch.boxed.json;
 
+import org.jetbrains.annotations.NotNull;
+
 import javax.json.JsonValue;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
 
 public interface MutableJsValue extends JsonValue {
+    /**
+     * Write json text as UTF-8, output stream is flushed but not closed
+     *
+     * @param outputStream output stream
+     * @throws javax.json.JsonException if an I/O error occurs
+     */
+    default void writeTo(@NotNull OutputStream outputStream) { JsWriter.writeTo(this, outputStream); }
+
+    default void writeTo(@NotNull Writer writer) { JsWriter.writeTo(this, writer); }
+
+    /**
+     * Put json text as UTF-8 into the buffer at its position, advancing the position
+     *
+     * @param byteBuffer byte buffer
+     * @throws java.nio.BufferOverflowException if the text does not fit, the buffer's contents and position are undefined
+     */
+    default void writeTo(@NotNull ByteBuffer byteBuffer) { JsWriter.writeTo(this, byteBuffer); }
+
+    /**
+     * @return RFC 8785 canonical json text, with sorted keys and ECMAScript number formatting
+     */
+    default String toCanonicalString() { return JsWriter.toCanonicalJson(this); }
 
+    /**
+     * Hash of canonical json text, the same for equal values regardless of key order
+     *
+     * @return SHA-256 of UTF-8 canonical json text as lowercase hex
+     */
+    default String contentHash() { return JsWriter.contentHash(this); }
 }
@@ -2,17 +2,29 @@ package com.vladsch.boxed.json;
 
 import org.jetbrains.annotations.NotNull;
 
-import javax.json.Json;
 import javax.json.JsonArray;
 import javax.json.JsonObject;
 import javax.json.JsonValue;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
-import java.io.StringReader;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class MutableJson {
     @Deprecated
@@ -25,11 +37,11 @@ public class MutableJson {
      * @return mutable js object
      */
     public static MutableJsObject objectFrom(final @NotNull Reader reader) {
-        return of(Json.createReader(reader).readObject());
+        return new JsCharParser(reader).readObject();
     }
 
     public static MutableJsArray arrayFrom(final @NotNull Reader reader) {
-        return of(Json.createReader(reader).readArray());
+        return new JsCharParser(reader).readArray();
     }
 
     @Deprecated
@@ -37,12 +49,48 @@ public class MutableJson {
         return objectFrom(inputStream);
     }
 
+    /**
+     * @param inputStream json, encoding is detected from the first bytes and a byte order mark is skipped
+     * @return mutable js object
+     */
     public static MutableJsObject objectFrom(final @NotNull InputStream inputStream) {
-        return of(Json.createReader(inputStream).readObject());
+        return JsParser.of(inputStream).readObject();
     }
 
     public static MutableJsArray arrayFrom(final @NotNull InputStream inputStream) {
-        return of(Json.createReader(inputStream).readArray());
+        return JsParser.of(inputStream).readArray();
+    }
+
+    /**
+     * Parse UTF-8 encoded json, string values are decoded when first requested
+     * so the bytes must not be modified while parsed values are in use
+     *
+     * @param bytes  UTF-8 json
+     * @param offset offset of json in bytes
+     * @param length length of json
+     * @return mutable js object
+     */
+    public static MutableJsObject objectFrom(final @NotNull byte[] bytes, int offset, int length) {
+        return new JsUtf8Parser(bytes, offset, length).readObject();
+    }
+
+    public static MutableJsArray arrayFrom(final @NotNull byte[] bytes, int offset, int length) {
+        return new JsUtf8Parser(bytes, offset, length).readArray();
+    }
+
+    /**
+     * Parse UTF-8 encoded json from the buffer's position to its limit, string values are decoded
+     * when first requested so the buffer contents must not be modified while parsed values are in use
+     *
+     * @param buffer UTF-8 json, its position is not changed
+     * @return mutable js object
+     */
+    public static MutableJsObject objectFrom(final @NotNull ByteBuffer buffer) {
+        return new JsUtf8Parser(buffer).readObject();
+    }
+
+    public static MutableJsArray arrayFrom(final @NotNull ByteBuffer buffer) {
+        return new JsUtf8Parser(buffer).readArray();
     }
 
     @Deprecated
@@ -51,11 +99,304 @@ public class MutableJson {
     }
 
     public static MutableJsObject objectFrom(final @NotNull String json) {
-        return objectFrom(new StringReader(json));
+        return new JsCharParser(json).readObject();
     }
 
     public static MutableJsArray arrayFrom(final @NotNull String json) {
-        return arrayFrom(new StringReader(json));
+        return new JsCharParser(json).readArray();
+    }
+
+    /**
+     * Parse object in lazy mode, nested objects and arrays are parsed when first accessed
+     *
+     * @param json json text
+     * @return mutable js object
+     */
+    public static MutableJsObject lazyObjectFrom(final @NotNull String json) {
+        JsCharParser parser = new JsCharParser(json);
+        parser.setLazy(true);
+        return parser.readObject();
+    }
+
+    /**
+     * Parse array in lazy mode, nested objects and arrays are parsed when first accessed
+     *
+     * @param json json text
+     * @return mutable js array
+     */
+    public static MutableJsArray lazyArrayFrom(final @NotNull String json) {
+        JsCharParser parser = new JsCharParser(json);
+        parser.setLazy(true);
+        return parser.readArray();
+    }
+
+    /**
+     * Parse json file, memory mapped in regions of at most 1GB so files of any size are mapped
+     * <p>
+     * Strings and decimal numbers of a mapped file reference the mapping until their values are requested.
+     * A single string or number must fit in a region.
+     *
+     * @param path UTF-8 json file
+     * @return mutable js object
+     * @throws IOException if file cannot be read
+     */
+    public static MutableJsObject objectFrom(final @NotNull Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new JsUtf8Parser(channel, MAX_MAPPING_SIZE).readObject();
+        }
+    }
+
+    public static MutableJsArray arrayFrom(final @NotNull Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new JsUtf8Parser(channel, MAX_MAPPING_SIZE).readArray();
+        }
+    }
+
+    /**
+     * Parse object keeping only values on the given paths, values not on any path are skipped
+     * without being created
+     * <p>
+     * Array elements before a selected index, which are not selected themselves, are replaced by null
+     * so that selected elements keep their index.
+     *
+     * @param reader json
+     * @param paths  paths of values to keep, in eval() syntax
+     * @return mutable js object with selected values
+     */
+    public static MutableJsObject extract(final @NotNull Reader reader, String... paths) {
+        return new JsCharParser(reader).readSelected(JsPathTrie.of(paths));
+    }
+
+    public static MutableJsObject extract(final @NotNull InputStream inputStream, String... paths) {
+        return JsParser.of(inputStream).readSelected(JsPathTrie.of(paths));
+    }
+
+    public static MutableJsObject extract(final @NotNull byte[] bytes, String... paths) {
+        return new JsUtf8Parser(bytes, 0, bytes.length).readSelected(JsPathTrie.of(paths));
+    }
+
+    public static MutableJsObject extract(final @NotNull String json, String... paths) {
+        return new JsCharParser(json).readSelected(JsPathTrie.of(paths));
+    }
+
+    /**
+     * Iterate over elements of a top level array, parsing one element at a time so memory use is
+     * bounded by the largest element
+     *
+     * @param inputStream json array, encoding is detected from the first bytes
+     * @return iterator over array elements, objects and arrays are mutable
+     */
+    public static Iterator<JsonValue> arrayElements(final @NotNull InputStream inputStream) {
+        return JsParser.of(inputStream).arrayElements();
+    }
+
+    public static Iterator<JsonValue> arrayElements(final @NotNull Reader reader) {
+        return new JsCharParser(reader).arrayElements();
+    }
+
+    /**
+     * Parse json lines, newline separated objects. The same parser and buffers are used for all objects.
+     *
+     * @param inputStream json lines, encoding is detected from the first bytes
+     * @return stream of parsed objects, parsed as the stream is consumed
+     */
+    public static Stream<MutableJsObject> linesFrom(final @NotNull InputStream inputStream) {
+        return linesFrom(JsParser.of(inputStream));
+    }
+
+    public static Stream<MutableJsObject> linesFrom(final @NotNull Reader reader) {
+        return linesFrom(new JsCharParser(reader));
+    }
+
+    static Stream<MutableJsObject> linesFrom(final @NotNull JsParser parser) {
+        Iterator<MutableJsObject> iterator = new Iterator<MutableJsObject>() {
+            @Override
+            public boolean hasNext() {
+                return parser.hasNext();
+            }
+
+            @Override
+            public MutableJsObject next() {
+                if (!parser.hasNext()) throw new NoSuchElementException();
+                return parser.nextObject();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Parse json lines in parallel, input is split into chunks at line boundaries which are parsed
+     * on the common ForkJoinPool
+     *
+     * @param buffer  UTF-8 json lines from the buffer's position to its limit, its position is not changed
+     * @param ordered true to keep input order, false to get objects in any order
+     * @return parallel stream of parsed objects
+     */
+    public static Stream<MutableJsObject> parallelLinesFrom(final @NotNull ByteBuffer buffer, boolean ordered) {
+        ArrayList<ByteBuffer> chunks = new ArrayList<>();
+        splitLines(buffer, buffer.position(), buffer.limit(), chunks);
+        return parallelLinesFrom(chunks, ordered);
+    }
+
+    public static Stream<MutableJsObject> parallelLinesFrom(final @NotNull byte[] bytes, boolean ordered) {
+        return parallelLinesFrom(ByteBuffer.wrap(bytes), ordered);
+    }
+
+    /**
+     * Parse json lines file in parallel, file is memory mapped and split into chunks at line boundaries
+     * which are parsed on the common ForkJoinPool. Files larger than a single mapping are mapped in
+     * regions ending at line boundaries.
+     *
+     * @param path    UTF-8 json lines file
+     * @param ordered true to keep input order, false to get objects in any order
+     * @return parallel stream of parsed objects
+     * @throws IOException if file cannot be mapped
+     */
+    public static Stream<MutableJsObject> parallelLinesFrom(final @NotNull Path path, boolean ordered) throws IOException {
+        ArrayList<ByteBuffer> chunks = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long pos = 0;
+            while (pos < size) {
+                long length = Math.min(size - pos, MAX_MAPPING_SIZE);
+                ByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, pos, length);
+                int end = (int) length;
+                if (pos + length < size) {
+                    // mapping must end on a line boundary
+                    while (end > 0 && mapping.get(end - 1) != '\n') end--;
+                    if (end == 0) throw new IOException("Line at offset " + pos + " is too long to map");
+                }
+                splitLines(mapping, 0, end, chunks);
+                pos += end;
+            }
+        }
+        return parallelLinesFrom(chunks, ordered);
+    }
+
+    static final long MAX_MAPPING_SIZE = 1L << 30;
+    static final int MIN_CHUNK_SIZE = 64 * 1024;
+
+    private static Stream<MutableJsObject> parallelLinesFrom(final List<ByteBuffer> chunks, boolean ordered) {
+        Stream<ByteBuffer> stream = chunks.parallelStream();
+        if (!ordered) stream = stream.unordered();
+        return stream.flatMap(chunk -> linesFrom(new JsUtf8Parser(chunk)));
+    }
+
+    /**
+     * Split buffer range into chunks ending at line boundaries, sized to keep all pool threads busy
+     *
+     * @param buffer buffer
+     * @param start  start of range
+     * @param end    end of range
+     * @param chunks list to which chunks are added
+     */
+    static void splitLines(final ByteBuffer buffer, int start, int end, List<ByteBuffer> chunks) {
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, (end - start) / (ForkJoinPool.getCommonPoolParallelism() * 4));
+        while (start < end) {
+            int chunkEnd = end - start <= chunkSize ? end : start + chunkSize;
+            while (chunkEnd < end && buffer.get(chunkEnd - 1) != '\n') chunkEnd++;
+            chunks.add(JsUtf8Parser.slice(buffer, start, chunkEnd));
+            start = chunkEnd;
+        }
+    }
+
+    /**
+     * Map file for reading
+     *
+     * @param path file
+     * @return mapped file contents or null if file is larger than 2GB, the limit of a single mapping
+     * @throws IOException if file cannot be mapped
+     */
+    static ByteBuffer mapFile(final @NotNull Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) return null;
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    public static MutableJsObject lazyObjectFrom(final @NotNull ByteBuffer buffer) {
+        JsUtf8Parser parser = new JsUtf8Parser(buffer);
+        parser.setLazy(true);
+        return parser.readObject();
+    }
+
+    public static MutableJsArray lazyArrayFrom(final @NotNull ByteBuffer buffer) {
+        JsUtf8Parser parser = new JsUtf8Parser(buffer);
+        parser.setLazy(true);
+        return parser.readArray();
+    }
+
+    public static JsonValue valueFrom(final @NotNull Reader reader) {
+        return new JsCharParser(reader).readValue();
+    }
+
+    public static JsonValue valueFrom(final @NotNull String json) {
+        return new JsCharParser(json).readValue();
+    }
+
+    /**
+     * Write value in compact binary encoding, which keeps the int, long and decimal distinction of
+     * numbers, see JsBinaryWriter
+     *
+     * @param jsonValue    value to write
+     * @param outputStream output stream, flushed but not closed
+     * @throws javax.json.JsonException if an I/O error occurs
+     */
+    public static void writeBinary(final @NotNull JsonValue jsonValue, final @NotNull OutputStream outputStream) {
+        JsBinaryWriter writer = new JsBinaryWriter(outputStream);
+        writer.write(jsonValue);
+        writer.flush();
+    }
+
+    /**
+     * Read value written by writeBinary(), without reading past its end
+     * <p>
+     * Streams which support mark() are read ahead in bulk and reset to the end of the value,
+     * other streams read tags and lengths a byte at a time and should be buffered.
+     *
+     * @param inputStream input stream
+     * @return value, objects and arrays are MutableJsObject and MutableJsArray
+     * @throws javax.json.JsonException if the input is not valid or an I/O error occurs
+     */
+    public static JsonValue readBinary(final @NotNull InputStream inputStream) {
+        return new JsBinaryReader(inputStream).read();
+    }
+
+    /**
+     * Read value written by writeBinary()
+     *
+     * @param buffer buffer, read from its position which is advanced past the value
+     * @return value, objects and arrays are MutableJsObject and MutableJsArray
+     * @throws javax.json.JsonException if the input is not valid
+     */
+    public static JsonValue readBinary(final @NotNull ByteBuffer buffer) {
+        return new JsBinaryReader(buffer).read();
+    }
+
+    /**
+     * Write value as a snapshot which BoxedJson.snapshotFrom() reads in place, see JsSnapshotWriter.
+     * Values read from a snapshot are read-only.
+     *
+     * @param jsonValue    value to write
+     * @param outputStream output stream, flushed but not closed
+     * @throws javax.json.JsonException if an I/O error occurs or the snapshot exceeds 2GB
+     */
+    public static void writeSnapshot(final @NotNull JsonValue jsonValue, final @NotNull OutputStream outputStream) {
+        JsSnapshotWriter writer = new JsSnapshotWriter();
+        writer.write(jsonValue);
+        writer.writeTo(outputStream);
+    }
+
+    /**
+     * @param jsonValue value
+     * @return snapshot of value in a heap buffer, values read from it by BoxedJson.snapshotFrom() are read-only
+     * @throws javax.json.JsonException if the snapshot exceeds 2GB
+     */
+    public static ByteBuffer toSnapshot(final @NotNull JsonValue jsonValue) {
+        JsSnapshotWriter writer = new JsSnapshotWriter();
+        writer.write(jsonValue);
+        return writer.toByteBuffer();
     }
 
     public static MutableJsObject of(JsonObject jsonObject) {
@@ -115,6 +456,10 @@ public class MutableJson {
             return JsonValue.NULL;
         }
 
+        if (jsonValue instanceof JsLazyValue) {
+            return ((JsLazyValue) jsonValue).materialize();
+        }
+
         switch (jsonValue.getValueType()) {
             case ARRAY:
                 return jsonValue instanceof MutableJsArray ? jsonValue : new MutableJsArray((JsonArray) jsonValue);
@@ -140,6 +485,10 @@ public class MutableJson {
             return JsonValue.NULL;
         }
 
+        if (jsonValue instanceof JsLazyValue) {
+            jsonValue = ((JsLazyValue) jsonValue).materialize();
+        }
+
         switch (jsonValue.getValueType()) {
             case ARRAY: {
                 int iMax = ((JsonArray) jsonValue).size();
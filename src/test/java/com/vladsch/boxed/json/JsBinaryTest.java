@@ -0,0 +1,142 @@
+package com.vladsch.boxed.json;
+
+import org.junit.Test;
+
+import javax.json.JsonException;
+import javax.json.JsonValue;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JsBinaryTest {
+    @Test
+    public void test_binary() throws IOException {
+        MutableJsObject jsObject = MutableJson.objectFrom(JsParserTest.JSON);
+        jsObject.put("int", Integer.MIN_VALUE);
+        jsObject.put("long", Long.MAX_VALUE);
+        jsObject.put("double", -0.1);
+        jsObject.put("decimal", new BigDecimal("-1.50E-7"));
+        jsObject.put("big", new BigDecimal("123456789012345678901234567890.5"));
+        jsObject.put("text", "caf\u00e9 \ud83d\ude00 \u0000\"");
+        jsObject.put("literals", MutableJson.arrayFrom("[true,false,null,{},[]]"));
+        jsObject.myMap.put("javaNull", null);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MutableJson.writeBinary(jsObject, out);
+        MutableJson.writeBinary(JsString.of("next"), out);
+        byte[] bytes = out.toByteArray();
+        assertTrue(bytes.length < jsObject.toString().length());
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        JsonValue fromBuffer = MutableJson.readBinary(buffer);
+        assertEquals(JsString.of("next"), MutableJson.readBinary(buffer));
+        assertFalse(buffer.hasRemaining());
+
+        ByteArrayInputStream in = new ByteArrayInputStream(bytes);
+        JsonValue fromStream = MutableJson.readBinary(in);
+        assertEquals(JsString.of("next"), MutableJson.readBinary(in));
+
+        // streams are read in bulk, without consuming bytes after the value
+        int[] reads = { 0 };
+        ByteArrayInputStream counted = new ByteArrayInputStream(bytes) {
+            @Override
+            public synchronized int read() {
+                reads[0]++;
+                return super.read();
+            }
+
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                reads[0]++;
+                return super.read(b, off, len);
+            }
+        };
+        assertEquals(jsObject.toString(), MutableJson.readBinary(counted).toString());
+        assertEquals(JsString.of("next"), MutableJson.readBinary(counted));
+        assertEquals(-1, counted.read());
+        assertTrue(reads[0] < 5);
+
+        InputStream unmarked = new FilterInputStream(new ByteArrayInputStream(bytes)) {
+            @Override
+            public boolean markSupported() {
+                return false;
+            }
+        };
+        assertEquals(jsObject.toString(), MutableJson.readBinary(unmarked).toString());
+        assertEquals(JsString.of("next"), MutableJson.readBinary(unmarked));
+        assertEquals(-1, unmarked.read());
+
+        jsObject.put("javaNull", JsonValue.NULL);
+        for (JsonValue value : Arrays.asList(fromBuffer, fromStream)) {
+            assertEquals(jsObject.toString(), value.toString());
+            MutableJsObject read = (MutableJsObject) value;
+            assertTrue(read.myMap.getRaw("int") instanceof JsIntNumber);
+            assertTrue(read.myMap.getRaw("long") instanceof JsLongNumber);
+            assertTrue(read.myMap.getRaw("decimal") instanceof JsBigDecimalNumber);
+            assertEquals(BoxedJson.boxedOf(jsObject), BoxedJson.boxedOf(read));
+            assertEquals(BoxedJsValue.BoxedValueType.NUMBER, BoxedJson.boxedOf(read).eval("params.timestamp").getBoxedValueType());
+        }
+
+        try {
+            MutableJson.readBinary(ByteBuffer.wrap(bytes, 0, 20));
+            fail("Expected JsonException");
+        } catch (JsonException ignored) {
+
+        }
+
+        // values larger than the stream buffer
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5000; i++) sb.append("valueé").append(i);
+        ByteArrayOutputStream largeOut = new ByteArrayOutputStream();
+        MutableJson.writeBinary(JsString.of(sb.toString()), largeOut);
+        MutableJson.writeBinary(JsString.of("next"), largeOut);
+        byte[] large = largeOut.toByteArray();
+        ByteArrayInputStream largeIn = new ByteArrayInputStream(large);
+        assertEquals(JsString.of(sb.toString()), MutableJson.readBinary(largeIn));
+        assertEquals(JsString.of("next"), MutableJson.readBinary(largeIn));
+        InputStream largeUnmarked = new FilterInputStream(new ByteArrayInputStream(large)) {
+            @Override
+            public boolean markSupported() {
+                return false;
+            }
+        };
+        assertEquals(JsString.of(sb.toString()), MutableJson.readBinary(largeUnmarked));
+        assertEquals(JsString.of("next"), MutableJson.readBinary(largeUnmarked));
+
+        // corrupt or truncated lengths fail without allocating the length
+        byte[][] corrupt = {
+                { 0x08, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 'a' },
+                Arrays.copyOf(large, large.length / 2),
+        };
+        for (byte[] input : corrupt) {
+            try {
+                MutableJson.readBinary(new ByteArrayInputStream(input));
+                fail("Expected JsonException");
+            } catch (JsonException ignored) {
+
+            }
+
+            try {
+                MutableJson.readBinary(new FilterInputStream(new ByteArrayInputStream(input)) {
+                    @Override
+                    public boolean markSupported() {
+                        return false;
+                    }
+                });
+                fail("Expected JsonException");
+            } catch (JsonException ignored) {
+
+            }
+        }
+    }
+}
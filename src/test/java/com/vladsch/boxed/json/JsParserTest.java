@@ -0,0 +1,823 @@
+package com.vladsch.boxed.json;
+
+import org.junit.Test;
+
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonValue;
+import javax.json.stream.JsonParsingException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JsParserTest {
+    static final String JSON = "{\"method\":\"Runtime.consoleAPICalled\",\"params\":{\"type\":\"warning\",\"args\":[{\"type\":\"string\",\"value\":\"warning\"}],\"executionContextId\":30,\"timestamp\":1519047166210.763,\"stackTrace\":{\"callFrames\":[{\"functionName\":\"\",\"scriptId\":\"684\",\"url\":\"\",\"lineNumber\":0,\"columnNumber\":8}]}}}";
+
+    static void assertParseError(String json) {
+        try {
+            MutableJson.valueFrom(json);
+            fail("Expected parsing exception for: " + json);
+        } catch (JsonParsingException ignored) {
+
+        }
+    }
+
+    @Test
+    public void test_sameAsGlassFish() {
+        MutableJsObject jsObject = MutableJson.objectFrom(JSON);
+        assertEquals(Json.createReader(new StringReader(JSON)).readObject(), jsObject);
+        assertEquals(JSON, jsObject.toString());
+    }
+
+    @Test
+    public void test_nodeTypes() {
+        MutableJsObject jsObject = MutableJson.objectFrom(" { \"a\" : [ 1 , 2147483648 , 12345678901234567890 , -1.5e3 ] , \"b\" : \"\\u0041\\n\" , \"c\" : { } , \"d\" : [ ] , \"e\" : true , \"f\" : false , \"g\" : null } ");
+        MutableJsArray a = (MutableJsArray) jsObject.get("a");
+        assertTrue(a.getRaw(0) instanceof JsIntNumber);
+        assertTrue(a.getRaw(1) instanceof JsLongNumber);
+        assertTrue(a.getRaw(2) instanceof JsBigDecimalNumber);
+        assertEquals(new BigDecimal("-1.5e3"), ((JsNumber) a.getRaw(3)).bigDecimalValue());
+        assertTrue(jsObject.myMap.getRaw("b") instanceof JsString);
+        assertEquals("A\n", jsObject.getString("b"));
+        assertTrue(jsObject.myMap.getRaw("c") instanceof MutableJsObject);
+        assertTrue(jsObject.myMap.getRaw("d") instanceof MutableJsArray);
+        assertSame(JsonValue.TRUE, jsObject.get("e"));
+        assertSame(JsonValue.FALSE, jsObject.get("f"));
+        assertSame(JsonValue.NULL, jsObject.get("g"));
+    }
+
+    @Test
+    public void test_readerBufferBoundaries() {
+        StringBuilder sb = new StringBuilder();
+        sb.append('[');
+        for (int i = 0; i < 5000; i++) {
+            if (i > 0) sb.append(',');
+            sb.append("{\"key").append(i).append("\":\"value\\t").append(i).append("\",\"num\":").append(i).append(".25}");
+        }
+        sb.append(']');
+        String json = sb.toString();
+
+        MutableJsArray jsArray = MutableJson.arrayFrom(new StringReader(json));
+        assertEquals(5000, jsArray.size());
+        assertEquals(json, jsArray.toString());
+    }
+
+    @Test
+    public void test_utf8() {
+        String json = "{\"a\":\"plain\",\"b\":\"\u00e9\u4e2d\ud83d\ude00\",\"c\":\"esc\\\"\\u00e9\\n\u4e2d\\\\\",\"\u00e9\":[1.5,-20,null]}";
+        byte[] bytes = ("  " + json + "  ").getBytes(StandardCharsets.UTF_8);
+        MutableJsObject expected = MutableJson.objectFrom(json);
+
+        MutableJsObject jsObject = MutableJson.objectFrom(bytes, 0, bytes.length);
+        assertEquals(expected, jsObject);
+        assertEquals("esc\"\u00e9\n\u4e2d\\", jsObject.getString("c"));
+        assertEquals(expected.toString(), jsObject.toString());
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length + 4);
+        direct.put(new byte[] { 'x', 'x' }).put(bytes).flip();
+        direct.position(2);
+        assertEquals(expected, MutableJson.objectFrom(direct));
+        assertEquals(2, direct.position());
+
+        assertEquals(expected, MutableJson.objectFrom(new ByteArrayInputStream(bytes)));
+        assertEquals(expected, MutableJson.lazyObjectFrom(ByteBuffer.wrap(bytes)));
+    }
+
+    @Test
+    public void test_inputStreamEncoding() throws IOException {
+        String json = "{\"a\":1,\"b\":\"\u00e9\u4e2d\ud83d\ude00\"}";
+        MutableJsObject expected = MutableJson.objectFrom(json);
+        byte[] bom = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(bom);
+        out.write(json.getBytes(StandardCharsets.UTF_8));
+        assertEquals(expected, MutableJson.objectFrom(new ByteArrayInputStream(out.toByteArray())));
+        assertEquals(expected, BoxedJson.objectFrom(new ByteArrayInputStream(out.toByteArray())));
+
+        String[] charsets = { "UTF-16LE", "UTF-16BE", "UTF-16", "UTF-32LE", "UTF-32BE", "UTF-32" };
+        for (String charset : charsets) {
+            byte[] bytes = json.getBytes(charset);
+            assertEquals(charset, expected, MutableJson.objectFrom(new ByteArrayInputStream(bytes)));
+            assertEquals(charset, MutableJson.arrayFrom("[1,{}]"), MutableJson.arrayFrom(new ByteArrayInputStream("[1,{}]".getBytes(charset))));
+        }
+
+        byte[] utf16Bom = ("\ufeff" + json).getBytes("UTF-16LE");
+        assertEquals(expected, MutableJson.objectFrom(new ByteArrayInputStream(utf16Bom)));
+        assertEquals(MutableJson.objectFrom("{}"), MutableJson.objectFrom(new ByteArrayInputStream(new byte[] { '{', '}' })));
+        assertEquals(MutableJson.arrayFrom("[]"), MutableJson.arrayFrom(new ByteArrayInputStream(new byte[] { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF, '[', ']' })));
+
+        try {
+            MutableJson.objectFrom(new ByteArrayInputStream(bom));
+            fail("Expected parsing exception");
+        } catch (JsonParsingException ignored) {
+
+        }
+
+        // parser skips byte order mark even when the stream returns one byte at a time
+        InputStream singleBytes = new FilterInputStream(new ByteArrayInputStream(out.toByteArray())) {
+            @Override
+            public int read(final byte[] b, final int off, final int len) throws IOException {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+        assertEquals(expected, new JsUtf8Parser(singleBytes).readObject());
+
+        byte[] utf16 = "{\"a\":[1,2],\"b\":3}".getBytes("UTF-16");
+        assertEquals("{\"a\":[null,2]}", MutableJson.extract(new ByteArrayInputStream(utf16), "a[1]").toString());
+        assertEquals(2, MutableJson.linesFrom(new ByteArrayInputStream("{\"a\":1}\n{\"a\":2}\n".getBytes("UTF-16LE"))).count());
+
+        ByteArrayOutputStream lines = new ByteArrayOutputStream();
+        lines.write(bom);
+        lines.write("{\"a\":1}\n{\"a\":2}\n".getBytes(StandardCharsets.UTF_8));
+        assertEquals(2, MutableJson.linesFrom(new ByteArrayInputStream(lines.toByteArray())).count());
+
+        ByteArrayOutputStream array = new ByteArrayOutputStream();
+        array.write(bom);
+        array.write("[1,2,3]".getBytes(StandardCharsets.UTF_8));
+        Iterator<JsonValue> elements = MutableJson.arrayElements(new ByteArrayInputStream(array.toByteArray()));
+        int count = 0;
+        while (elements.hasNext()) {
+            elements.next();
+            count++;
+        }
+        assertEquals(3, count);
+        Iterator<JsonValue> utf32Elements = MutableJson.arrayElements(new ByteArrayInputStream("[1,2,3]".getBytes("UTF-32BE")));
+        assertEquals(JsNumber.of(1), utf32Elements.next());
+    }
+
+    @Test
+    public void test_mappedFile() throws IOException {
+        Path path = Files.createTempFile("boxed-json", ".json");
+        try {
+            Files.write(path, JSON.getBytes(StandardCharsets.UTF_8));
+            BoxedJsObject json = BoxedJson.objectFrom(path);
+            assertEquals(1519047166210.763, json.evalDouble("params.timestamp"), 0.0);
+            assertEquals(JSON, json.toString());
+
+            Files.write(path, "[1,\"a\",{}]".getBytes(StandardCharsets.UTF_8));
+            assertEquals("[1,\"a\",{}]", BoxedJson.arrayFrom(path).toString());
+
+            // files larger than a mapping are mapped in regions, tokens crossing a region end are remapped
+            StringBuilder sb = new StringBuilder();
+            sb.append('[');
+            for (int i = 0; i < 500; i++) {
+                if (i > 0) sb.append(',');
+                sb.append("{\"key\u00e9").append(i).append("\":\"value\\t\u4e2d").append(i).append("\",\"num\":").append(i).append(".25}");
+            }
+            sb.append(']');
+            String text = sb.toString();
+            Files.write(path, text.getBytes(StandardCharsets.UTF_8));
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                MutableJsArray jsArray = new JsUtf8Parser(channel, 64).readArray();
+                assertEquals(500, jsArray.size());
+                assertEquals(text, jsArray.toString());
+            }
+
+            Files.write(path, "[\"a very long string which does not fit in a region\"]".getBytes(StandardCharsets.UTF_8));
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                new JsUtf8Parser(channel, 16).readArray();
+                fail("Expected JsonException");
+            } catch (JsonException ignored) {
+
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void test_inputStreamBufferBoundaries() {
+        StringBuilder sb = new StringBuilder();
+        sb.append('[');
+        for (int i = 0; i < 5000; i++) {
+            if (i > 0) sb.append(',');
+            sb.append("{\"key\u00e9").append(i).append("\":\"value\\t\u4e2d").append(i).append("\",\"num\":").append(i).append(".25}");
+        }
+        sb.append(']');
+        String json = sb.toString();
+
+        MutableJsArray jsArray = MutableJson.arrayFrom(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(5000, jsArray.size());
+        assertEquals(json, jsArray.toString());
+    }
+
+    @Test
+    public void test_lazy() {
+        MutableJsObject jsObject = MutableJson.lazyObjectFrom(JSON);
+        assertTrue(jsObject.myMap.getRaw("method") instanceof JsString);
+        assertTrue(jsObject.myMap.getRaw("params") instanceof JsLazyValue);
+
+        MutableJsObject params = (MutableJsObject) jsObject.get("params");
+        assertSame(params, jsObject.myMap.getRaw("params"));
+        assertTrue(params.myMap.getRaw("args") instanceof JsLazyValue);
+        assertTrue(params.myMap.getRaw("stackTrace") instanceof JsLazyValue);
+        assertEquals(30, params.getInt("executionContextId"));
+
+        BoxedJsObject json = BoxedJson.lazyObjectFrom(JSON);
+        assertEquals("684", json.evalString("params.stackTrace.callFrames[0].scriptId"));
+        assertEquals(JSON, json.toString());
+        assertEquals(MutableJson.objectFrom(JSON), MutableJson.lazyObjectFrom(JSON));
+    }
+
+    @Test
+    public void test_lazyModify() {
+        BoxedJsObject json = BoxedJson.lazyObjectFrom("{\"a\":{\"b\":[1,{\"c\":\"]}\\\"\"}]},\"d\":[[]]}");
+        json.evalSet("a.b[1].e", 5);
+        BoxedJsValue removed = json.remove("d");
+        assertEquals("[[]]", removed.toString());
+        assertEquals("{\"a\":{\"b\":[1,{\"c\":\"]}\\\"\",\"e\":5}]}}", json.toString());
+    }
+
+    @Test
+    public void test_lazyErrors() {
+        MutableJsObject jsObject = MutableJson.lazyObjectFrom("{\"a\":[1,2 3],\"b\":1}");
+        assertEquals(1, jsObject.getInt("b"));
+        try {
+            jsObject.get("a");
+            fail("Expected parsing exception");
+        } catch (JsonParsingException ignored) {
+
+        }
+
+        // mismatched brackets are found when scanning
+        try {
+            MutableJson.lazyObjectFrom("{\"a\":[1,{\"c\":2]},\"b\":1}");
+            fail("Expected parsing exception");
+        } catch (JsonParsingException ignored) {
+
+        }
+    }
+
+    @Test
+    public void test_extract() {
+        String[] paths = { "method", "params.executionContextId", "params.stackTrace.callFrames[0].url", "params.args[1].type", "params.timestamp.value", "missing.value" };
+        BoxedJsObject json = BoxedJson.objectFrom(JSON);
+        BoxedJsObject extracted = BoxedJson.extract(JSON, paths);
+        assertEquals("{\"method\":\"Runtime.consoleAPICalled\",\"params\":{\"args\":[null],\"executionContextId\":30,\"timestamp\":1519047166210.763,\"stackTrace\":{\"callFrames\":[{\"url\":\"\"}]}}}", extracted.toString());
+
+        for (String path : paths) {
+            assertEquals(path, json.eval(path), extracted.eval(path));
+        }
+
+        assertEquals(extracted, BoxedJson.extract(JSON.getBytes(StandardCharsets.UTF_8), paths));
+        assertEquals(extracted, BoxedJson.extract(new ByteArrayInputStream(JSON.getBytes(StandardCharsets.UTF_8)), paths));
+        assertEquals(extracted, BoxedJson.extract(new StringReader(JSON), paths));
+        assertEquals("{\"params\":{\"args\":[{\"type\":\"string\",\"value\":\"warning\"}]}}", BoxedJson.extract(JSON, "params.args", "params.args[0].type").toString());
+
+        // padding for large indices is bounded by the array size
+        assertEquals("{\"a\":[null,2,null]}", BoxedJson.extract("{\"a\":[1,2,3]}", "a[1]", "a[2000000000]").toString());
+
+        // skipped values are validated the same as parsed values
+        for (String skipped : new String[] { "trux", "nul", "1.2.3e", "01", "-", "[}", "{\"a\" 1]", "{\"a\":1,}", "[1 2]", "\"\\x\"", "\"a\tb\"", "{]" }) {
+            String text = "{\"a\":" + skipped + ",\"b\":1}";
+            try {
+                BoxedJson.extract(text, "b");
+                fail("Expected parsing exception for: " + text);
+            } catch (JsonParsingException ignored) {
+
+            }
+            try {
+                BoxedJson.extract(text.getBytes(StandardCharsets.UTF_8), "b");
+                fail("Expected parsing exception for: " + text);
+            } catch (JsonParsingException ignored) {
+
+            }
+            assertParseError(text);
+        }
+    }
+
+    @Test
+    public void test_lines() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            sb.append("{\"id\":").append(i).append(",\"name\":\"line\u00e9").append(i).append("\"}\n");
+            if (i % 100 == 0) sb.append("\r\n");
+        }
+        String lines = sb.toString();
+
+        int[] count = { 0 };
+        BoxedJson.linesFrom(new ByteArrayInputStream(lines.getBytes(StandardCharsets.UTF_8))).forEach(json -> {
+            assertEquals(count[0], json.getInt("id"));
+            assertEquals("line\u00e9" + count[0], json.getString("name"));
+            count[0]++;
+        });
+        assertEquals(2000, count[0]);
+        assertEquals(2000, BoxedJson.linesFrom(new StringReader(lines)).count());
+
+        try {
+            MutableJson.linesFrom(new StringReader("{}{}")).count();
+            fail("Expected parsing exception");
+        } catch (JsonParsingException ignored) {
+
+        }
+
+        try {
+            MutableJson.linesFrom(new StringReader("{\"a\":1} {\"b\":2}\n")).count();
+            fail("Expected parsing exception");
+        } catch (JsonParsingException ignored) {
+
+        }
+
+        try {
+            MutableJson.linesFrom(new ByteArrayInputStream("{\"a\":1}\t{\"b\":2}".getBytes(StandardCharsets.UTF_8))).count();
+            fail("Expected parsing exception");
+        } catch (JsonParsingException ignored) {
+
+        }
+
+        assertEquals(2, MutableJson.linesFrom(new StringReader("{\"a\":1} \r\n  \n{\"b\":2}")).count());
+    }
+
+    @Test
+    public void test_parallelLines() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            sb.append("{\"id\":").append(i).append(",\"name\":\"line number ").append(i).append("\"}\n");
+        }
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+
+        List<Integer> ids = BoxedJson.parallelLinesFrom(bytes, true).map(json -> json.getInt("id")).collect(Collectors.toList());
+        assertEquals(20000, ids.size());
+        for (int i = 0; i < 20000; i++) {
+            assertEquals(i, (int) ids.get(i));
+        }
+
+        assertEquals(20000, BoxedJson.parallelLinesFrom(bytes, false).map(json -> json.getInt("id")).collect(Collectors.toSet()).size());
+
+        Path path = Files.createTempFile("boxed-json", ".jsonl");
+        try {
+            Files.write(path, bytes);
+            assertEquals(199990000L, BoxedJson.parallelLinesFrom(path, false).mapToLong(json -> json.getInt("id")).sum());
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void test_incremental() {
+        String message = "{\"id\":1,\"text\":\"}]\\\"{\u00e9\",\"list\":[{},[]]}";
+        byte[] bytes = (message + "\n" + message + " " + message).getBytes(StandardCharsets.UTF_8);
+        ArrayList<BoxedJsObject> results = new ArrayList<>();
+        JsIncrementalParser parser = new JsIncrementalParser(results::add);
+
+        for (int chunkSize = 1; chunkSize <= bytes.length; chunkSize++) {
+            results.clear();
+            byte[] chunk = new byte[chunkSize];
+            for (int i = 0; i < bytes.length; i += chunkSize) {
+                int length = Math.min(chunkSize, bytes.length - i);
+                System.arraycopy(bytes, i, chunk, 0, length);
+                parser.feed(chunk, 0, length);
+                // chunk is reused
+                Arrays.fill(chunk, (byte) 'x');
+            }
+
+            assertFalse(parser.isPending());
+            assertEquals(3, results.size());
+            for (BoxedJsObject json : results) {
+                assertEquals(message, json.toString());
+            }
+        }
+
+        try {
+            parser.feed("{\"a\":1} [".getBytes(StandardCharsets.UTF_8));
+            fail("Expected parsing exception");
+        } catch (JsonParsingException ignored) {
+
+        }
+        assertFalse(parser.isPending());
+    }
+
+    @Test
+    public void test_arrayElements() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("[ ");
+        for (int i = 0; i < 3000; i++) {
+            if (i > 0) sb.append(" ,\n");
+            if (i % 3 == 0) sb.append("{\"id\":").append(i).append(",\"values\":[1,2,3]}");
+            else if (i % 3 == 1) sb.append(i);
+            else sb.append("\"").append(i).append("\"");
+        }
+        sb.append(" ]");
+
+        Iterator<BoxedJsValue> iterator = BoxedJson.arrayElements(new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8)));
+        int index = 0;
+        while (iterator.hasNext()) {
+            assertTrue(iterator.hasNext());
+            BoxedJsValue value = iterator.next();
+            if (index % 3 == 0) assertEquals(index, value.evalInt("id"));
+            else if (index % 3 == 1) assertEquals(index, value.asJsNumber().intValue());
+            else assertEquals(String.valueOf(index), value.asJsString().getString());
+            index++;
+        }
+        assertEquals(3000, index);
+
+        assertFalse(BoxedJson.arrayElements(new StringReader(" [ ] ")).hasNext());
+        assertEquals(3, BoxedJson.arrayElementStream(new ByteArrayInputStream("[1,{},[]]".getBytes(StandardCharsets.UTF_8))).count());
+
+        try {
+            Iterator<BoxedJsValue> elements = BoxedJson.arrayElements(new StringReader("[1,2 3]"));
+            elements.next();
+            elements.next();
+            elements.next();
+            fail("Expected parsing exception");
+        } catch (JsonParsingException ignored) {
+
+        }
+    }
+
+    @Test
+    public void test_keyCache() {
+        JsKeyCache keyCache = new JsKeyCache(100);
+        assertEquals(128, keyCache.size());
+
+        String json = "{\"method\":\"a\",\"params\":{\"method\":1,\"k\\u00e9y\":2,\"caf\u00e9\":3}}";
+
+        JsCharParser charParser = new JsCharParser(json);
+        charParser.setKeyCache(keyCache);
+        MutableJsObject chars = charParser.readObject();
+
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        JsUtf8Parser utf8Parser = new JsUtf8Parser(bytes, 0, bytes.length);
+        utf8Parser.setKeyCache(keyCache);
+        MutableJsObject utf8 = utf8Parser.readObject();
+
+        assertEquals(chars, utf8);
+        assertEquals(new HashSet<>(Arrays.asList("method", "k\u00e9y", "caf\u00e9")), utf8.getJsonObject("params").keySet());
+
+        String key = chars.keySet().iterator().next();
+        assertSame(key, utf8.keySet().iterator().next());
+        assertSame(key, chars.getJsonObject("params").keySet().iterator().next());
+        for (String utf8Key : utf8.getJsonObject("params").keySet()) {
+            assertSame(keyCache.intern(utf8Key), utf8Key);
+        }
+
+        JsParser.setDefaultKeyCache(keyCache);
+        try {
+            assertSame(key, MutableJson.objectFrom(json).keySet().iterator().next());
+            assertSame(key, MutableJson.lazyObjectFrom(json).getJsonObject("params").keySet().iterator().next());
+        } finally {
+            JsParser.setDefaultKeyCache(null);
+        }
+
+        String longKey = String.join("", Collections.nCopies(JsKeyCache.MAX_KEY_LENGTH + 1, "k"));
+        JsCharParser longParser = new JsCharParser("{\"" + longKey + "\":1}");
+        longParser.setKeyCache(keyCache);
+        assertEquals(1, longParser.readObject().getInt(longKey));
+    }
+
+    @Test
+    public void test_writer() {
+        JsonObject glassFish = Json.createObjectBuilder()
+                .add("text", "quote \" slash \\ tab \t nl \n ctrl \u0001\u001f caf\u00e9")
+                .add("num", new BigDecimal("1.50E+3"))
+                .add("list", Json.createArrayBuilder().add(1).addNull().add(true).add(Json.createObjectBuilder().add("a", false)))
+                .build();
+
+        MutableJsObject jsObject = new MutableJsObject();
+        jsObject.myMap.put("glassFish", glassFish);
+        jsObject.myMap.put("javaNull", null);
+        jsObject.put("long", 12345678901L);
+        jsObject.put("string", "\b\f\r");
+
+        JsonObjectBuilder builder = Json.createObjectBuilder().add("glassFish", glassFish).addNull("javaNull")
+                .add("long", 12345678901L).add("string", "\b\f\r");
+        StringWriter sw = new StringWriter();
+        Json.createWriter(sw).write(builder.build());
+
+        assertEquals(sw.toString(), jsObject.toString());
+        assertSame(glassFish, jsObject.myMap.getRaw("glassFish"));
+        assertTrue(jsObject.myMap.getRaw("javaNull") == null);
+
+        MutableJsArray jsArray = new MutableJsArray();
+        jsArray.add(JsString.of(JSON));
+        jsArray.add(glassFish.getJsonArray("list"));
+        sw = new StringWriter();
+        Json.createWriter(sw).writeArray(Json.createArrayBuilder().add(JSON).add(glassFish.getJsonArray("list")).build());
+        assertEquals(sw.toString(), jsArray.toString());
+        assertSame(glassFish.getJsonArray("list"), jsArray.getRaw(1));
+
+        MutableJsObject lazy = MutableJson.lazyObjectFrom(JSON);
+        assertEquals(JSON, lazy.toString());
+        assertTrue(lazy.myMap.getRaw("params") instanceof JsLazyValue);
+    }
+
+    @Test
+    public void test_writeTo() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"values\":[");
+        for (int i = 0; i < 2000; i++) {
+            if (i > 0) sb.append(',');
+            sb.append("\"caf\u00e9 \ud83d\ude00 \u20ac ").append(i).append("\"");
+        }
+        sb.append("]}");
+        String json = sb.toString();
+        BoxedJsObject jsObject = BoxedJson.objectFrom(json);
+        byte[] expected = json.getBytes(StandardCharsets.UTF_8);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        jsObject.writeTo(out);
+        assertArrayEquals(expected, out.toByteArray());
+
+        StringWriter sw = new StringWriter();
+        jsObject.writeTo(sw);
+        assertEquals(json, sw.toString());
+
+        ByteBuffer buffer = ByteBuffer.allocate(expected.length + 10);
+        buffer.put((byte) '#');
+        ((MutableJsValue) jsObject.jsonValue()).writeTo(buffer);
+        assertEquals(expected.length + 1, buffer.position());
+        buffer.flip().position(1);
+        assertEquals(json, StandardCharsets.UTF_8.decode(buffer).toString());
+
+        out.reset();
+        jsObject.eval("values[1]").writeTo(out);
+        assertEquals("\"caf\u00e9 \ud83d\ude00 \u20ac 1\"", new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+        try {
+            jsObject.writeTo(ByteBuffer.allocate(expected.length - 1));
+            fail("Expected buffer overflow");
+        } catch (BufferOverflowException ignored) {
+
+        }
+    }
+
+    @Test
+    public void test_keepSource() {
+        String json = "{ \"method\" : \"Debugger.paused\",\n" +
+                "  \"params\" : { \"callFrames\" : [ { \"functionName\" : \"f\\u0031\", \"line\" : 1e1 } ],\n" +
+                "    \"other\" : [ 1.0E+1 , { \"a\" : true } ] } }";
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+
+        JsUtf8Parser utf8Parser = new JsUtf8Parser(bytes, 0, bytes.length);
+        utf8Parser.setKeepSource(true);
+        BoxedJsObject utf8 = BoxedJson.boxedOf(utf8Parser.readObject());
+
+        JsCharParser charParser = new JsCharParser(json);
+        charParser.setKeepSource(true);
+        charParser.setLazy(true);
+        BoxedJsObject chars = BoxedJson.boxedOf(charParser.readObject());
+
+        assertEquals(json, utf8.toString());
+        assertEquals(json, chars.toString());
+        assertEquals("[ 1.0E+1 , { \"a\" : true } ]", chars.eval("params.other").toString());
+
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length);
+        utf8.writeTo(buffer);
+        assertArrayEquals(bytes, buffer.array());
+
+        String expected = "{\"method\":\"Debugger.paused\",\"params\":{\"callFrames\":[{\"functionName\":\"g\",\"line\":1E+1}]," +
+                "\"other\":[ 1.0E+1 , { \"a\" : true } ]}}";
+
+        utf8.evalSet("params.callFrames[0].functionName", "g");
+        chars.evalSet("params.callFrames[0].functionName", "g");
+        assertEquals(expected, utf8.toString());
+        assertEquals(expected, chars.toString());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        utf8.writeTo(out);
+        assertEquals(expected, new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+        ((MutableJsArray) chars.evalJsArray("params.other").jsonValue()).remove(0);
+        assertEquals(expected.replace("[ 1.0E+1 , { \"a\" : true } ]", "[{ \"a\" : true }]"), chars.toString());
+
+        try {
+            new JsCharParser(new StringReader(json)).setKeepSource(true);
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException ignored) {
+
+        }
+    }
+
+    @Test
+    public void test_stringEscaping() {
+        StringBuilder sb = new StringBuilder();
+        for (char c = 0; c < 0x100; c++) {
+            sb.append(c);
+        }
+        sb.append("\u2028\ud83d\ude00 plain text");
+        String value = sb.toString();
+
+        StringWriter sw = new StringWriter();
+        Json.createWriter(sw).writeArray(Json.createArrayBuilder().add(value).add("plain").build());
+        String expected = sw.toString();
+
+        MutableJsArray jsArray = new MutableJsArray();
+        jsArray.add(value);
+        jsArray.add(JsString.encoded("plain"));
+        assertEquals(expected, jsArray.toString());
+        assertEquals(expected.substring(1, expected.lastIndexOf(',')), JsString.of(value).toString());
+
+        JsString encoded = JsString.encoded(value);
+        assertEquals(JsString.of(value), encoded);
+        assertSame(encoded.toString(), encoded.toString());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MutableJsArray encodedArray = new MutableJsArray();
+        encodedArray.add(encoded);
+        encodedArray.writeTo(out);
+        assertArrayEquals(("[" + encoded + "]").getBytes(StandardCharsets.UTF_8), out.toByteArray());
+
+        byte[] bytes = expected.getBytes(StandardCharsets.UTF_8);
+        MutableJsArray parsed = new JsUtf8Parser(bytes, 0, bytes.length).readArray();
+        out.reset();
+        parsed.writeTo(out);
+        assertArrayEquals(bytes, out.toByteArray());
+        assertEquals(expected, parsed.toString());
+    }
+
+    @Test
+    public void test_prettyPrinting() {
+        String json = "{\"a\":[1,2,3],\"b\":{\"c\":[{\"d\":null}],\"e\":{},\"f\":[]},\"g\":[1,2,3,4,5,6,7,8,9]}";
+        String expected = "" +
+                "{\n" +
+                "  \"a\": [1, 2, 3],\n" +
+                "  \"b\": {\n" +
+                "    \"c\": [\n" +
+                "      {\n" +
+                "        \"d\": null\n" +
+                "      }\n" +
+                "    ],\n" +
+                "    \"e\": {},\n" +
+                "    \"f\": []\n" +
+                "  },\n" +
+                "  \"g\": [\n" +
+                "    1,\n" +
+                "    2,\n" +
+                "    3,\n" +
+                "    4,\n" +
+                "    5,\n" +
+                "    6,\n" +
+                "    7,\n" +
+                "    8,\n" +
+                "    9\n" +
+                "  ]\n" +
+                "}";
+
+        JsCharParser parser = new JsCharParser(json);
+        parser.setKeepSource(true);
+        MutableJsObject jsObject = parser.readObject();
+        assertEquals(expected, new JsWriter().setPrettyPrinting().write(jsObject).toString());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new JsWriter(out).setIndent("\t").setKeyValueSeparator(" : ").write(MutableJson.objectFrom("{\"a\":[1],\"b\":2}")).flush();
+        assertEquals("{\n\t\"a\" : [\n\t\t1\n\t],\n\t\"b\" : 2\n}", new String(out.toByteArray(), StandardCharsets.UTF_8));
+        assertEquals(jsObject, MutableJson.objectFrom(expected));
+    }
+
+    @Test
+    public void test_numberOutput() {
+        Random random = new Random(8785);
+        List<Double> doubles = new ArrayList<>(Arrays.asList(0.0, -0.0, 1.0, -1.0, 100.0, 0.1, 0.001, 1.0E-5, 1.0E-6, 1.0E-7, 1.234E-5, 1.0E7, 1.0E10,
+                123456789.125, 1519047166210.763, Double.MIN_VALUE, Double.MAX_VALUE, -Double.MIN_NORMAL, (double) 0.1f, 2.0E23, 5.0E-324));
+        for (int i = 0; i < 20000; i++) {
+            doubles.add(Double.longBitsToDouble(random.nextLong()));
+            doubles.add(random.nextDouble() * Math.pow(10, random.nextInt(40) - 20));
+            doubles.add((double) random.nextInt(100000) / Math.pow(10, random.nextInt(10)));
+        }
+
+        MutableJsArray jsArray = new MutableJsArray();
+        StringBuilder expected = new StringBuilder("[");
+        for (double d : doubles) {
+            if (Double.isNaN(d) || Double.isInfinite(d)) continue;
+            String bigDecimal = BigDecimal.valueOf(d).toString();
+            JsNumber jsNumber = JsNumber.of(d);
+            assertEquals(bigDecimal, jsNumber.toString());
+            assertEquals(JsNumber.of(BigDecimal.valueOf(d)), jsNumber);
+            jsArray.add(jsNumber);
+            if (expected.length() > 1) expected.append(',');
+            expected.append(bigDecimal);
+        }
+        jsArray.add(Long.MIN_VALUE);
+        jsArray.add(Integer.MIN_VALUE);
+        jsArray.add(0);
+        expected.append(',').append(Long.MIN_VALUE).append(',').append(Integer.MIN_VALUE).append(",0]");
+        assertEquals(expected.toString(), jsArray.toString());
+
+        String[] decimals = { "-0.0", "0.0", "0.000000", "0.0000000", "-0.000001", "0.0000001", "0.0000010", "1.50", "-12.5e0", "1E3", "123456789012345678901234567890",
+                "-0.5", "1519047166210.763", "0.00000123", "10.0000000000001" };
+        String json = "[" + String.join(",", decimals) + "]";
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        MutableJsArray parsed = new JsUtf8Parser(bytes, 0, bytes.length).readArray();
+        MutableJsArray converted = new MutableJsArray();
+        for (String decimal : decimals) {
+            converted.add(new BigDecimal(decimal));
+        }
+        assertEquals(converted.toString(), parsed.toString());
+
+        try {
+            JsNumber.of(Double.NaN);
+            fail("Expected NumberFormatException");
+        } catch (NumberFormatException ignored) {
+
+        }
+    }
+
+    @Test
+    public void test_canonical() throws Exception {
+        // RFC 8785 appendix B
+        String[][] numbers = {
+                { "0000000000000000", "0" },
+                { "8000000000000000", "0" },
+                { "0000000000000001", "5e-324" },
+                { "8000000000000001", "-5e-324" },
+                { "7fefffffffffffff", "1.7976931348623157e+308" },
+                { "ffefffffffffffff", "-1.7976931348623157e+308" },
+                { "4340000000000000", "9007199254740992" },
+                { "c340000000000000", "-9007199254740992" },
+                { "4430000000000000", "295147905179352830000" },
+                { "44b52d02c7e14af5", "9.999999999999997e+22" },
+                { "44b52d02c7e14af6", "1e+23" },
+                { "44b52d02c7e14af7", "1.0000000000000001e+23" },
+                { "444b1ae4d6e2ef4e", "999999999999999700000" },
+                { "444b1ae4d6e2ef4f", "999999999999999900000" },
+                { "444b1ae4d6e2ef50", "1e+21" },
+                { "3eb0c6f7a0b5ed8c", "9.999999999999997e-7" },
+                { "3eb0c6f7a0b5ed8d", "0.000001" },
+                { "41b3de4355555553", "333333333.3333332" },
+                { "41b3de4355555554", "333333333.33333325" },
+                { "41b3de4355555555", "333333333.3333333" },
+                { "41b3de4355555556", "333333333.3333334" },
+                { "41b3de4355555557", "333333333.33333343" },
+                { "becbf647612f3696", "-0.0000033333333333333333" },
+                { "43143ff3c1cb0959", "1424953923781206.2" },
+        };
+        for (String[] number : numbers) {
+            double value = Double.longBitsToDouble(Long.parseUnsignedLong(number[0], 16));
+            assertEquals(number[0], number[1], JsWriter.toCanonicalJson(JsNumber.of(value)));
+        }
+
+        String json = "{\"numbers\":[333333333.33333329,1E30,4.50,2e-3,0.000000000000000000000000001],\"string\":\"\\u20ac$\\u000F\\u000aA'\\u0042\\u0022\\u005c\\\\\\\"\\/\",\"literals\":[null,true,false]}";
+        String canonical = "{\"literals\":[null,true,false],\"numbers\":[333333333.3333333,1e+30,4.5,0.002,1e-27],\"string\":\"\u20ac$\\u000f\\nA'B\\\"\\\\\\\\\\\"/\"}";
+
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        JsUtf8Parser parser = new JsUtf8Parser(bytes, 0, bytes.length);
+        parser.setKeepSource(true);
+        MutableJsObject jsObject = parser.readObject();
+        assertEquals(canonical, jsObject.toCanonicalString());
+        assertEquals(json, jsObject.toString());
+
+        BoxedJsObject reordered = BoxedJson.objectFrom("{\"string\":\"\u20ac$\\u000f\\nA'B\\\"\\\\\\\\\\\"/\",\"literals\":[null,true,false],\"numbers\":[333333333.3333333,1e30,4.5,0.002,1e-27]}");
+        assertEquals(canonical, reordered.toCanonicalString());
+
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest(canonical.getBytes(StandardCharsets.UTF_8))) {
+            hex.append(String.format("%02x", b));
+        }
+        assertEquals(hex.toString(), jsObject.contentHash());
+        assertEquals(hex.toString(), reordered.contentHash());
+        assertNotEquals(hex.toString(), BoxedJson.objectFrom("{\"a\":1}").contentHash());
+
+        MutableJsObject sorted = MutableJson.objectFrom("{\"\u20ac\":1,\"\\r\":2,\"1\":3,\"\ud83d\ude00\":4,\"\\ufb33\":5,\"\u00f6\":6,\"\\u0080\":7}");
+        assertEquals("{\"\\r\":2,\"1\":3,\"\u0080\":7,\"\u00f6\":6,\"\u20ac\":1,\"\ud83d\ude00\":4,\"\ufb33\":5}", sorted.toCanonicalString());
+    }
+
+    @Test
+    public void test_errors() {
+        assertParseError("");
+        assertParseError("{");
+        assertParseError("{\"a\"}");
+        assertParseError("{\"a\":1,}");
+        assertParseError("[1,]");
+        assertParseError("[01]");
+        assertParseError("[1.]");
+        assertParseError("[1e]");
+        assertParseError("[tru]");
+        assertParseError("[\"a\tb\"]");
+        assertParseError("[\"\\x\"]");
+        assertParseError("{} {}");
+        assertParseError("[1 2]");
+    }
+}
@@ -0,0 +1,118 @@
+package com.vladsch.boxed.json;
+
+import org.junit.Test;
+
+import javax.json.JsonException;
+import javax.json.JsonValue;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JsSnapshotTest {
+    @Test
+    public void test_snapshot() throws IOException {
+        MutableJsObject jsObject = MutableJson.objectFrom(JsParserTest.JSON);
+        jsObject.put("int", Integer.MIN_VALUE);
+        jsObject.put("long", Long.MAX_VALUE);
+        jsObject.put("double", -0.1);
+        jsObject.put("decimal", new BigDecimal("-1.50E-7"));
+        jsObject.put("big", new BigDecimal("123456789012345678901234567890.5"));
+        jsObject.put("text", "caf\u00e9 \ud83d\ude00 \u0000\"");
+        jsObject.put("literals", MutableJson.arrayFrom("[true,false,null,{},[]]"));
+        jsObject.put("z\u00e9", 1);
+        jsObject.put("\u00e9", 2);
+        jsObject.put("", 3);
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 64);
+        buffer.put((byte) 0);
+        buffer.put(MutableJson.toSnapshot(jsObject));
+        buffer.flip();
+        buffer.position(1);
+
+        BoxedJsObject snapshot = BoxedJson.snapshotObjectFrom(buffer);
+        assertEquals(1, buffer.position());
+        assertTrue(snapshot instanceof BoxedJsSnapshotObject);
+        assertEquals(jsObject.size(), snapshot.size());
+        assertEquals(jsObject.toString(), snapshot.toString());
+        assertEquals(new ArrayList<>(jsObject.keySet()), new ArrayList<>(snapshot.keySet()));
+        assertEquals(BoxedJson.boxedOf(jsObject), snapshot);
+        assertEquals(snapshot, BoxedJson.boxedOf(jsObject));
+
+        for (String key : jsObject.keySet()) {
+            assertTrue(snapshot.containsKey(key));
+            assertEquals(jsObject.get(key).toString(), snapshot.get(key).toString());
+        }
+        assertFalse(snapshot.containsKey("missing"));
+        assertFalse(snapshot.containsKey("\u00e8"));
+        assertTrue(snapshot.get("missing").hadMissing());
+
+        assertEquals(Integer.MIN_VALUE, snapshot.getInt("int"));
+        assertEquals(Long.MAX_VALUE, snapshot.getJsonNumber("long").longValue());
+        assertEquals(new BigDecimal("123456789012345678901234567890.5"), snapshot.getJsonNumber("big").bigDecimalValue());
+        assertEquals("caf\u00e9 \ud83d\ude00 \u0000\"", snapshot.getString("text"));
+        assertEquals(2, snapshot.getInt("\u00e9"));
+        assertTrue(snapshot.eval("literals[0]").isTrue());
+        assertTrue(snapshot.eval("literals[2]").isNull());
+        assertTrue(snapshot.eval("literals[5]").hadMissing());
+        assertTrue(snapshot.eval("int.x").hadInvalid());
+        assertEquals(BoxedJson.boxedOf(jsObject).eval("params.timestamp").toString(), snapshot.eval("params.timestamp").toString());
+        assertTrue(snapshot.evalJsArray("literals") instanceof BoxedJsSnapshotArray);
+
+        JsonValue copy = BoxedJson.copyOf(snapshot);
+        assertEquals(jsObject.toString(), copy.toString());
+
+        BoxedJsArray array = BoxedJson.snapshotArrayFrom(MutableJson.toSnapshot(MutableJson.arrayFrom("[1,\"a\",[2]]")));
+        assertEquals(3, array.size());
+        assertEquals(2, array.getJsonArray(2).getInt(0));
+        assertEquals("a", array.getString(1));
+        assertTrue(array.getJsonArray(1).hadInvalid());
+
+        // snapshot values are read-only
+        Runnable[] modifications = {
+                () -> snapshot.put("a", 1),
+                () -> snapshot.remove("int"),
+                () -> snapshot.evalSet("int", 5),
+                () -> snapshot.evalSet("params.stackTrace.callFrames[0].url", "x"),
+                () -> snapshot.evalSet("params.new.value", 1),
+                () -> array.add(JsonValue.NULL),
+                () -> array.remove(0),
+                () -> array.evalSet("[2][0]", 1),
+        };
+        for (int i = 0; i < modifications.length; i++) {
+            try {
+                modifications[i].run();
+                fail("Expected UnsupportedOperationException for modification " + i);
+            } catch (UnsupportedOperationException e) {
+                assertTrue(e.getMessage().contains("snapshot"));
+            }
+        }
+        assertEquals(jsObject.toString(), snapshot.toString());
+
+        Path path = Files.createTempFile("snapshot", ".bjs");
+        try {
+            try (OutputStream out = Files.newOutputStream(path)) {
+                MutableJson.writeSnapshot(jsObject, out);
+            }
+            assertEquals(jsObject.toString(), BoxedJson.snapshotObjectFrom(path).toString());
+        } finally {
+            Files.delete(path);
+        }
+
+        try {
+            BoxedJson.snapshotFrom(ByteBuffer.wrap("{}".getBytes(StandardCharsets.UTF_8)));
+            fail("Expected JsonException");
+        } catch (JsonException ignored) {
+
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.vladsch.boxed.json;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class JsWriterPoolTest {
+    @Test
+    public void test_writerReuse() {
+        MutableJsObject jsObject = MutableJson.objectFrom(JsParserTest.JSON);
+        String json = jsObject.toString();
+
+        JsWriter writer = JsWriter.acquire();
+        JsWriter nested = JsWriter.acquire();
+        assertNotSame(writer, nested);
+        nested.release();
+        writer.setPrettyPrinting().write(jsObject);
+        assertNotEquals(json, writer.toString());
+        writer.release();
+
+        JsWriter reused = JsWriter.acquire();
+        assertSame(writer, reused);
+        assertEquals("", reused.toString());
+        assertEquals(json, reused.write(jsObject).toString());
+        assertEquals(json, JsWriter.toJson(jsObject));
+        reused.reset();
+        assertEquals("", reused.toString());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        reused.reset(out).write(jsObject).flush();
+        assertEquals(json, new String(out.toByteArray(), StandardCharsets.UTF_8));
+        StringWriter stringWriter = new StringWriter();
+        reused.reset(stringWriter).write(jsObject).flush();
+        assertEquals(json, stringWriter.toString());
+
+        char[] large = new char[JsWriter.MAX_RETAINED_BUFFER_SIZE];
+        Arrays.fill(large, 'a');
+        reused.reset().write(JsString.of(new String(large)));
+        assertEquals(JsWriter.MAX_RETAINED_BUFFER_SIZE + 2, reused.toString().length());
+        reused.reset();
+        assertTrue(reused.myChars.length <= JsWriter.MAX_RETAINED_BUFFER_SIZE);
+        reused.release();
+
+        ByteArrayOutputStream streamOut = new ByteArrayOutputStream();
+        jsObject.writeTo(streamOut);
+        assertEquals(json, new String(streamOut.toByteArray(), StandardCharsets.UTF_8));
+
+        JsWriterPool pool = new JsWriterPool(1);
+        JsWriter pooled = pool.acquire();
+        JsWriter other = pool.acquire();
+        assertNotSame(pooled, other);
+        pooled.setCanonical(true).write(jsObject);
+        pool.release(pooled);
+        pool.release(other);
+        assertEquals(1, pool.size());
+        JsWriter again = pool.acquire();
+        assertSame(pooled, again);
+        assertFalse(again.isCanonical());
+        assertEquals("", again.toString());
+        pool.release(again);
+        assertEquals(json, pool.toJson(jsObject));
+
+        // byte buffer allocated before char buffer grows in toString() of the same thread's writer
+        ByteArrayOutputStream smallOut = new ByteArrayOutputStream();
+        MutableJson.arrayFrom("[\"a\"]").writeTo(smallOut);
+        char[] chars = new char[20000];
+        Arrays.fill(chars, 'b');
+        MutableJsArray bigDoc = new MutableJsArray();
+        bigDoc.add(JsString.of(new String(chars)));
+        String bigJson = bigDoc.toString();
+        ByteArrayOutputStream bigOut = new ByteArrayOutputStream();
+        bigDoc.writeTo(bigOut);
+        assertEquals(bigJson, new String(bigOut.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
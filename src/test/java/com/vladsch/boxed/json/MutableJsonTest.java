@@ -20,6 +20,9 @@ import org.intellij.lang.annotations.Language;
 import org.jetbrains.annotations.NotNull;
 import org.junit.Test;
 
+import java.util.Iterator;
+import java.util.stream.Collectors;
+
 import static com.vladsch.boxed.json.BoxedJsValue.HAD_INVALID_LITERAL;
 import static com.vladsch.boxed.json.BoxedJsValue.HAD_INVALID_NUMBER;
 import static com.vladsch.boxed.json.BoxedJsValue.HAD_INVALID_STRING;
@@ -31,7 +34,9 @@ import static com.vladsch.boxed.json.BoxedJsValue.HAD_NULL_STRING;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class MutableJsonTest {
 
@@ -169,6 +174,230 @@ public class MutableJsonTest {
         assertNull(path(BoxedJson.parseEvalPath("ab[.", false)));
     }
 
+    @Test
+    public void test_compiledPath() {
+        BoxedJsObject json = BoxedJson.boxedFrom("{\"null\":null,\"int\":1,\"name\":\"value\",\"flag\":true,\"array\":[\"0\",1,{\"x\":2.5}],\"object\":{\"a\":{\"b\":\"c\"}}}");
+
+        JsPath path = BoxedJson.compilePath(" array[2].x ");
+        assertEquals("array[2].x", path.toString());
+        assertEquals(3, path.size());
+        assertTrue(path.isKey(0));
+        assertEquals("array", path.getKey(0));
+        assertEquals(2, path.getIndex(1));
+        assertFalse(path.hasEmptyIndex());
+        assertEquals(path, JsPath.of("array[2].x"));
+        assertEquals(path.hashCode(), JsPath.of("array[2].x").hashCode());
+
+        String[] paths = { "int", "name", "flag", "null", "array[0]", "array[1]", "array[2].x", "array[3]", "array.x", "object.a.b", "object.a.c", "null.a", "int[0]", "name.a" };
+        for (String text : paths) {
+            JsPath compiled = JsPath.of(text);
+            assertEquals(text, json.eval(text).getBoxedValueType(), json.eval(compiled).getBoxedValueType());
+            assertEquals(text, json.eval(text).toString(), json.eval(compiled).toString());
+            assertEquals(text, json.evalInt(text), json.evalInt(compiled));
+            assertEquals(text, json.evalInt(text, -1), json.evalInt(compiled, -1));
+            assertEquals(text, json.evalLong(text, -1), json.evalLong(compiled, -1));
+            assertEquals(text, json.evalDouble(text, -1), json.evalDouble(compiled, -1), 0);
+            assertEquals(text, json.evalString(text, "default"), json.evalString(compiled, "default"));
+            assertEquals(text, json.evalString(text), json.evalString(compiled));
+            assertEquals(text, json.evalBoolean(text), json.evalBoolean(compiled));
+            assertEquals(text, json.evalBoolean(text, true), json.evalBoolean(compiled, true));
+        }
+
+        assertEquals(HAD_MISSING_LITERAL, HAD_MISSING_LITERAL.eval(JsPath.of("a")).asJsLiteral());
+
+        try {
+            json.eval(JsPath.of("array[]"));
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ignored) {
+
+        }
+
+        try {
+            JsPath.of("a..b");
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ignored) {
+
+        }
+
+        JsPath append = JsPath.of("object.list[].name");
+        assertTrue(append.hasEmptyIndex());
+        json.evalSet(append, "first").evalSet(append, "second");
+        json.evalSet(JsPath.of("object.a.b"), 5);
+        assertEquals("{\"b\":5}", json.eval(JsPath.of("object.a")).toString());
+        assertEquals("[{\"name\":\"first\"},{\"name\":\"second\"}]", json.evalJsArray(JsPath.of("object.list")).toString());
+    }
+
+    @Test
+    public void test_evalAll() {
+        String text = "{\"method\":\"Runtime.consoleAPICalled\",\"params\":{\"type\":\"warning\",\"args\":[{\"type\":\"string\",\"value\":\"warning\"}],\"nothing\":null,\"stackTrace\":{\"callFrames\":[{\"url\":\"a.js\",\"lineNumber\":5},{\"url\":\"b.js\"}]}}}";
+        BoxedJsObject json = BoxedJson.boxedFrom(text);
+        BoxedJsValue snapshot = BoxedJson.snapshotFrom(MutableJson.toSnapshot(json.jsonValue()));
+
+        String[] paths = { "params.type", "params.args[0].value", "params.stackTrace.callFrames[0].url", "params.stackTrace.callFrames[1].url",
+                "params.stackTrace.callFrames[2].url", "params.stackTrace", "params.type", "params.type.x", "params.type[0]", "params.nothing.x",
+                "params.missing.x", "method", "params.args[0]", "params.args[0].value[1]" };
+
+        for (BoxedJsValue value : new BoxedJsValue[] { json, snapshot, BoxedJsValue.HAD_NULL_OBJECT, BoxedJson.of(1) }) {
+            BoxedJsValue[] results = value.evalAll(paths);
+            assertEquals(paths.length, results.length);
+            for (int i = 0; i < paths.length; i++) {
+                BoxedJsValue expected = value.eval(paths[i]);
+                assertEquals(paths[i], expected.getBoxedValueType(), results[i].getBoxedValueType());
+                assertEquals(paths[i], expected.toString(), results[i].toString());
+            }
+        }
+
+        BoxedJsValue[] results = json.evalAll(JsPath.of("params.type"), JsPath.of("params.type"));
+        assertSame(results[0], results[1]);
+        assertEquals(0, json.evalAll(new JsPath[0]).length);
+
+        // index children are sparse, large indices do not allocate
+        results = json.evalAll("params.args[2000000000]", "params.args[0].type", "params.args[1000000000].x", "method[2000000000]");
+        assertEquals(HAD_MISSING_LITERAL, results[0]);
+        assertEquals("\"string\"", results[1].toString());
+        assertEquals(HAD_MISSING_LITERAL, results[2]);
+        assertTrue(results[3].hadInvalid());
+
+        try {
+            json.evalAll("params.args[]");
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ignored) {
+
+        }
+    }
+
+    @Test
+    public void test_evalSetAllOrNothing() {
+        String text = "{\"a\":{\"b\":[1,{\"c\":2}],\"n\":null,\"s\":\"x\"}}";
+        BoxedJsObject json = BoxedJson.boxedFrom(text);
+
+        // failures leave the json unchanged
+        assertFalse(BoxedJson.evalSet(json, "a.b[5].c", JsNumber.of(1)).isValid());
+        assertFalse(BoxedJson.evalSet(json, "a.x.y[3].z", JsNumber.of(1)).isValid());
+        assertFalse(BoxedJson.evalSet(json, "a.x.y[].z[2]", JsNumber.of(1)).isValid());
+        assertTrue(BoxedJson.evalSet(json, "a.n.x", JsNumber.of(1)).hadNull());
+        assertTrue(BoxedJson.evalSet(json, "a.s[0]", JsNumber.of(1)).hadInvalid());
+        assertTrue(BoxedJson.evalSet(json, "a.b[3]", JsNumber.of(1)).hadMissing());
+        assertEquals(text, json.toString());
+
+        assertSame(json, json.evalSet("a.x.y[].z[]", 1));
+        assertSame(json, json.evalSet("a.b[1].d", 3));
+        assertSame(json, json.evalSet("a.b[2].e", 4));
+        assertSame(json, json.evalSet("a.b[0]", 0));
+        assertEquals("{\"a\":{\"b\":[0,{\"c\":2,\"d\":3},{\"e\":4}],\"n\":null,\"s\":\"x\",\"x\":{\"y\":[{\"z\":[1]}]}}}", json.toString());
+    }
+
+    private static String evalQuery(BoxedJsValue value, String query) {
+        return value.evalStream(query).map(Object::toString).collect(Collectors.joining(","));
+    }
+
+    @Test
+    public void test_evalQuery() {
+        String text = "{\"method\":\"Runtime.consoleAPICalled\",\"params\":{\"type\":\"warning\",\"args\":[{\"type\":\"string\",\"value\":\"warning\"},{\"type\":\"number\",\"value\":2}],\"nothing\":null,\"stackTrace\":{\"callFrames\":[{\"url\":\"a.js\",\"lineNumber\":5},{\"url\":\"b.js\"},{\"url\":\"c.js\",\"lineNumber\":12}]}}}";
+        BoxedJsObject json = BoxedJson.boxedFrom(text);
+        BoxedJsValue snapshot = BoxedJson.snapshotFrom(MutableJson.toSnapshot(json.jsonValue()));
+
+        for (BoxedJsValue value : new BoxedJsValue[] { json, snapshot }) {
+            assertEquals("\"a.js\",\"b.js\",\"c.js\"", evalQuery(value, "params.stackTrace.callFrames[*].url"));
+            assertEquals("\"a.js\",\"b.js\",\"c.js\"", evalQuery(value, "params.stackTrace.callFrames.*.url"));
+            assertEquals("\"a.js\",\"b.js\",\"c.js\"", evalQuery(value, "..url"));
+            assertEquals("\"warning\",\"string\",\"number\"", evalQuery(value, "..type"));
+            assertEquals("\"Runtime.consoleAPICalled\"", evalQuery(value, "method"));
+            assertEquals("\"warning\",2", evalQuery(value, "params.args[*].value"));
+            assertEquals("\"warning\"", evalQuery(value, "params[?(@ == 'warning')]"));
+            assertEquals("5,12", evalQuery(value, "..lineNumber"));
+            assertEquals("\"c.js\"", evalQuery(value, "params.stackTrace.callFrames[?(@.lineNumber > 5)].url"));
+            assertEquals("\"a.js\",\"c.js\"", evalQuery(value, "params.stackTrace.callFrames[?(@.lineNumber)].url"));
+            assertEquals("\"b.js\"", evalQuery(value, "params.stackTrace.callFrames[?(@.url == 'b.js')].url"));
+            assertEquals("\"a.js\",\"c.js\"", evalQuery(value, "params.stackTrace.callFrames[?(@.url != \"b.js\")].url"));
+            assertEquals("2", evalQuery(value, "params.args[?(@.type == 'number')].value"));
+            assertEquals("null", evalQuery(value, "params.nothing"));
+            assertEquals("", evalQuery(value, "params.missing[*]"));
+            assertEquals("", evalQuery(value, "method[0]"));
+            assertEquals("", evalQuery(value, "params.stackTrace.callFrames[3].url"));
+            assertEquals(21, value.evalStream("..*").count());
+        }
+
+        // results are produced as the stream is consumed
+        assertEquals("\"a.js\"", json.evalStream("..url").findFirst().get().toString());
+        assertEquals("\"a.js\",\"b.js\"", json.evalStream("..url").limit(2).map(Object::toString).collect(Collectors.joining(",")));
+
+        Iterator<BoxedJsValue> iterator = json.evalIterator(BoxedJson.compileQuery("params.args[1].value"));
+        assertTrue(iterator.hasNext());
+        assertEquals(2, iterator.next().asJsNumber().intValue());
+        assertFalse(iterator.hasNext());
+        assertFalse(BoxedJsValue.HAD_NULL_OBJECT.evalIterator("..*").hasNext());
+        assertFalse(BoxedJson.of(1).evalIterator("..*").hasNext());
+
+        for (String query : new String[] { "", ".a", "a..", "a.", "a[", "a[]", "a[x]", "a]", "a[0]b", "a[?(@.b >)]", "a[?(@.b == 'x)]", "a[?(b)]", "a[?(@.b == x)]" }) {
+            try {
+                BoxedJson.compileQuery(query);
+                fail("Expected IllegalArgumentException for " + query);
+            } catch (IllegalArgumentException ignored) {
+
+            }
+        }
+    }
+
+    @Test
+    public void test_pathCache() throws InterruptedException {
+        JsPathCache cache = new JsPathCache(4);
+        assertEquals(4, cache.getMaxSize());
+        JsPath path = cache.get("a.b[0]");
+        assertSame(path, cache.get("a.b[0]"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // recently used paths survive generations
+        for (int i = 0; i < 10; i++) {
+            cache.get("p" + i);
+            assertSame(path, cache.get("a.b[0]"));
+            assertTrue(cache.size() <= 2 * cache.getMaxSize());
+        }
+        assertEquals(11, cache.getMissCount());
+
+        try {
+            cache.get("a..b");
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ignored) {
+
+        }
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHitCount());
+
+        JsPathCache shared = new JsPathCache(64);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    String text = "params.args[" + (i % 100) + "].value";
+                    assertEquals(text, shared.get(text).toString());
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(4000, shared.getHitCount() + shared.getMissCount());
+
+        JsPathCache defaultCache = BoxedJson.getPathCache();
+        JsPathCache testCache = new JsPathCache(16);
+        BoxedJson.setPathCache(testCache);
+        try {
+            BoxedJsObject json = BoxedJson.boxedFrom("{\"a\":{\"b\":[1]}}");
+            assertEquals(1, json.evalInt("a.b[0]"));
+            assertEquals(1, json.evalInt("a.b[0]"));
+            json.evalSet("a.b[]", 2);
+            assertEquals(2, testCache.getMissCount());
+            assertEquals(1, testCache.getHitCount());
+        } finally {
+            BoxedJson.setPathCache(defaultCache);
+        }
+    }
+
     @Test
     public void test_mods() {
         BoxedJsObject json = BoxedJson.boxedFrom("{\"method\":\"Page.frameStartedLoading\",\"params\":{\"frameId\":\"0.1\"}}");